@@ -0,0 +1,138 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//PriceKernels with the Vector API, loaded by PriceKernels.createVectorKernels
+//each loop handles as many prices at once as the preferred vector shape of the cpu holds, the rest is done in scalar code
+final class VectorPriceKernels implements PriceKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    //the 16 bit halves of a price are summed in int lanes, after this many vectors they could overflow
+    private static final int VECTORS_PER_BLOCK = 1 << 15;
+
+    VectorPriceKernels() {
+    }
+
+    //lower and upper 16 bits are summed separately, so the lanes can stay int without overflowing
+    @Override
+    public long sum(int[] prices) {
+        int upper = INTS.loopBound(prices.length);
+        long sum = 0;
+        int i = 0;
+        while (i < upper) {
+            int blockEnd = (int) Math.min(upper, i + (long) VECTORS_PER_BLOCK * INTS.length());
+            IntVector low = IntVector.zero(INTS);
+            IntVector high = IntVector.zero(INTS);
+            for (; i < blockEnd; i += INTS.length()) {
+                IntVector v = IntVector.fromArray(INTS, prices, i);
+                low = low.add(v.and(0xFFFF));
+                high = high.add(v.lanewise(VectorOperators.ASHR, 16));
+            }
+            //reduceLanes would add the lanes in int as well
+            int[] lowLanes = low.toArray();
+            int[] highLanes = high.toArray();
+            for (int lane = 0; lane < lowLanes.length; lane++) {
+                sum += lowLanes[lane] + ((long) highLanes[lane] << 16);
+            }
+        }
+        for (; i < prices.length; i++) {
+            sum += prices[i];
+        }
+        return sum;
+    }
+
+    //squares need 64 bits, so every vector is widened into two long vectors
+    @Override
+    public long sumOfSquares(int[] prices) {
+        int upper = INTS.loopBound(prices.length);
+        int parts = INTS.length() / LONGS.length();
+        LongVector acc = LongVector.zero(LONGS);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            IntVector v = IntVector.fromArray(INTS, prices, i);
+            for (int part = 0; part < parts; part++) {
+                LongVector wide = (LongVector) v.convertShape(VectorOperators.I2L, LONGS, part);
+                acc = acc.add(wide.mul(wide));
+            }
+        }
+        long sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < prices.length; i++) {
+            sum += (long) prices[i] * prices[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int min(int[] prices) {
+        int upper = INTS.loopBound(prices.length);
+        IntVector acc = IntVector.broadcast(INTS, Integer.MAX_VALUE);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            acc = acc.min(IntVector.fromArray(INTS, prices, i));
+        }
+        int min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < prices.length; i++) {
+            min = Math.min(min, prices[i]);
+        }
+        return min;
+    }
+
+    @Override
+    public int max(int[] prices) {
+        int upper = INTS.loopBound(prices.length);
+        IntVector acc = IntVector.broadcast(INTS, Integer.MIN_VALUE);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            acc = acc.max(IntVector.fromArray(INTS, prices, i));
+        }
+        int max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < prices.length; i++) {
+            max = Math.max(max, prices[i]);
+        }
+        return max;
+    }
+
+    //there is no vectorised scatter, so instead the prices at or above each category start are counted with compares,
+    //the categories are the differences of neighbouring counts
+    @Override
+    public int[] countRanges(int[] prices, int numberOfCategories, int sizeCent) {
+        PriceKernels.checkCategories(numberOfCategories, sizeCent);
+        //starts that do not fit into an int can not be reached by any price
+        int starts = Math.min(numberOfCategories, Integer.MAX_VALUE / sizeCent);
+        int[] atLeast = new int[numberOfCategories + 2];
+        atLeast[0] = prices.length;
+
+        int upper = INTS.loopBound(prices.length);
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            IntVector v = IntVector.fromArray(INTS, prices, i);
+            for (int c = 1; c <= starts; c++) {
+                atLeast[c] += v.compare(VectorOperators.GE, c * sizeCent).trueCount();
+            }
+        }
+        for (; i < prices.length; i++) {
+            for (int c = 1; c <= starts && prices[i] >= c * sizeCent; c++) {
+                atLeast[c]++;
+            }
+        }
+
+        int[] result = new int[numberOfCategories + 1];
+        for (int c = 0; c <= numberOfCategories; c++) {
+            result[c] = atLeast[c] - atLeast[c + 1];
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "VectorKernels(" + INTS.length() + " lanes)";
+    }
+}
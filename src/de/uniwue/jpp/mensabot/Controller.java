@@ -1,23 +1,32 @@
 package de.uniwue.jpp.mensabot;
 
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
 import de.uniwue.jpp.mensabot.retrieval.Fetcher;
 import de.uniwue.jpp.mensabot.retrieval.Parser;
 import de.uniwue.jpp.mensabot.retrieval.Saver;
+import de.uniwue.jpp.mensabot.sending.ChunkedMessageWriter;
 import de.uniwue.jpp.mensabot.sending.Importer;
 import de.uniwue.jpp.mensabot.sending.Sender;
 import de.uniwue.jpp.mensabot.sending.formatting.Formatter;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
 public interface Controller {
 
     Optional<String> retrieveData();
     Optional<String> send(Formatter formatter);
+    //sends the formatted text as several messages of at most maxMessageLength characters, see ChunkedMessageWriter
+    //the default sends it as a single message like send(Formatter), the controller of create splits it
+    default Optional<String> send(Formatter formatter, int maxMessageLength) {
+        if(maxMessageLength <= 0) throw new IllegalArgumentException("The maximal message length must be positive");
+        return send(formatter);
+    }
 
     static Controller create(Fetcher f, Parser p, Saver sav, Path logfile, Importer i, Sender s) {
         if(f == null || p == null || sav == null ||logfile == null ||i == null ||s == null) throw new NullPointerException("At least one of the given parameters was null");
@@ -29,14 +38,42 @@ public interface Controller {
 
             @Override
             public Optional<String> send(Formatter formatter) {
-                try{
-                    BufferedReader firstReader = new BufferedReader(new FileReader(logfile.toFile()));
-                    BufferedReader allReader = new BufferedReader(new FileReader(logfile.toFile()));
-
-                    return i.getLatest(firstReader).flatMap(s -> formatter.format(s, () -> i.getAll(allReader))).tryToConsume(s::send);
-                } catch (FileNotFoundException fnfe){
-                    return Optional.of("File not found!");
-                }
+                return i.getLatest(logfile).flatMap(s -> formatter.format(s, () -> i.getAll(logfile))).tryToConsume(s::send);
+            }
+
+            //formatters that can format a stream get the menus from Importer.stream while the messages are sent, so the
+            //history is never held in memory, the others get them from getAll like send(Formatter)
+            //messages are sent as soon as they are full, so if importing, formatting or sending fails part way the recipients
+            //keep the messages sent before, the returned message tells how many there were
+            @Override
+            public Optional<String> send(Formatter formatter, int maxMessageLength) {
+                ChunkedMessageWriter writer = ChunkedMessageWriter.createChunkedMessageWriter(s, maxMessageLength);
+                return i.getLatest(logfile).tryToConsume(latest -> {
+                    Optional<String> error;
+                    if(formatter.canFormatStream()){
+                        List<String> importErrors = new ArrayList<>();
+                        try(Stream<Menu> menus = i.stream(logfile, importErrors::add)){
+                            error = formatter.formatStreamTo(latest, menus, writer);
+                        }
+                        if(error.isEmpty() && !importErrors.isEmpty()){
+                            error = Optional.of(importErrors.get(0));
+                        }
+                    } else {
+                        error = formatter.formatTo(latest, () -> i.getAll(logfile), writer);
+                    }
+
+                    //the rest of the text is only sent if formatting succeeded
+                    if(error.isEmpty()){
+                        try{
+                            writer.close();
+                        } catch (IOException e){
+                            error = Optional.of(e.getMessage());
+                        }
+                    }
+                    return error.map(message -> writer.getSentMessages() == 0
+                            ? message
+                            : message + " (" + writer.getSentMessages() + " messages were sent before)");
+                });
             }
         };
     }
@@ -0,0 +1,136 @@
+package de.uniwue.jpp.mensabot.dataclasses;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//canonicalises meals, so that equal meals of a history share one instance and one name string
+//meals are compared by name and price, a pool can be used by several threads at once
+public interface MealPool {
+
+    //returns a meal with the given name and price, creates it with Meal.createMeal if the pool does not contain it yet
+    Meal getMeal(String name, int price);
+
+    //number of different names currently held by the pool
+    int size();
+
+    //pool used by the parsers and importers if no other pool is given
+    MealPool SHARED = createWeakMealPool();
+
+    //meals are only held weakly and are removed once nothing else refers to them, so the pool never outgrows the data using it
+    //meals that are already pooled are found without taking a lock, so parsers on several threads can share the pool
+    static MealPool createWeakMealPool() {
+        //remembers the name a meal is pooled under, so the entry can be cleaned up once the meal was collected
+        final class MealReference extends WeakReference<Meal> {
+            private final String name;
+
+            MealReference(Meal meal, String name, ReferenceQueue<Meal> queue) {
+                super(meal, queue);
+                this.name = name;
+            }
+        }
+
+        return new MealPool() {
+            //the meals of a name are kept in an array that is replaced instead of changed, so it can be read without a lock
+            private final ConcurrentHashMap<String, MealReference[]> meals = new ConcurrentHashMap<>();
+            private final ReferenceQueue<Meal> collected = new ReferenceQueue<>();
+
+            @Override
+            public Meal getMeal(String name, int price) {
+                Meal pooled = find(meals.get(name), price);
+                if (pooled != null) {
+                    return pooled;
+                }
+                removeCollected();
+
+                Meal[] result = new Meal[1];
+                meals.compute(name, (key, sameName) -> {
+                    result[0] = find(sameName, price);
+                    if (result[0] != null) {
+                        return sameName;
+                    }
+                    //meals with the same name share the name string of the meal pooled first
+                    String canonicalName = name;
+                    for (MealReference reference : sameName == null ? new MealReference[0] : sameName) {
+                        Meal meal = reference.get();
+                        if (meal != null) {
+                            canonicalName = meal.getName();
+                            break;
+                        }
+                    }
+                    result[0] = Meal.createMeal(canonicalName, price);
+                    MealReference[] extended = sameName == null ? new MealReference[1] : Arrays.copyOf(sameName, sameName.length + 1);
+                    extended[extended.length - 1] = new MealReference(result[0], name, collected);
+                    return extended;
+                });
+                return result[0];
+            }
+
+            @Override
+            public int size() {
+                removeCollected();
+                return meals.size();
+            }
+
+            private Meal find(MealReference[] sameName, int price) {
+                if (sameName != null) {
+                    for (MealReference reference : sameName) {
+                        Meal meal = reference.get();
+                        if (meal != null && meal.getPriceInCent() == price) {
+                            return meal;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            //removes the references of collected meals and the names without meals left
+            private void removeCollected() {
+                Reference<? extends Meal> reference;
+                while ((reference = collected.poll()) != null) {
+                    meals.computeIfPresent(((MealReference) reference).name, (key, sameName) -> {
+                        MealReference[] alive = Arrays.stream(sameName).filter(r -> r.get() != null).toArray(MealReference[]::new);
+                        return alive.length == 0 ? null : alive;
+                    });
+                }
+            }
+        };
+    }
+
+    //holds the meals of at most capacity different names, the names used least recently are removed first
+    static MealPool createBoundedMealPool(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be positive");
+        return new MealPool() {
+            private final LinkedHashMap<String, List<Meal>> meals = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<Meal>> eldest) {
+                    return size() > capacity;
+                }
+            };
+
+            @Override
+            public synchronized Meal getMeal(String name, int price) {
+                List<Meal> sameName = meals.get(name);
+                if (sameName == null) {
+                    sameName = new ArrayList<>(1);
+                    meals.put(name, sameName);
+                }
+                for (Meal meal : sameName) {
+                    if (meal.getPriceInCent() == price) {
+                        return meal;
+                    }
+                }
+                Meal meal = Meal.createMeal(sameName.isEmpty() ? name : sameName.get(0).getName(), price);
+                sameName.add(meal);
+                return meal;
+            }
+
+            @Override
+            public synchronized int size() {
+                return meals.size();
+            }
+        };
+    }
+}
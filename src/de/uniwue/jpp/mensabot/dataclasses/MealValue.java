@@ -0,0 +1,54 @@
+package de.uniwue.jpp.mensabot.dataclasses;
+
+//immutable meal created by Meal.createMeal, the hash is computed once when the meal is created
+final class MealValue implements Meal {
+    private final String name;
+    private final int priceCent;
+    private final int hash;
+
+    MealValue(String name, int priceCent) {
+        this.name = name;
+        this.priceCent = priceCent;
+        this.hash = name.hashCode() + priceCent;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getPriceInCent() {
+        return priceCent;
+    }
+
+    @Override
+    public String getPriceInEuros() {
+        if(priceCent%100 < 10){
+            return priceCent/100 + ",0" + priceCent%100  + "€";
+        }
+        return  priceCent/100 + "," + priceCent%100  + "€";
+    }
+
+    @Override
+    public String toString(){
+        return  name + " (" + getPriceInEuros() +")";
+    }
+
+    //the hash is compared first, name and price only if it matches
+    @Override
+    public boolean equals(Object o){
+        if(this == o){
+            return true;
+        }
+        if(!(o instanceof Meal other) || hash != other.hashCode()){
+            return false;
+        }
+        return priceCent == other.getPriceInCent() && name.equals(other.getName());
+    }
+
+    @Override
+    public int hashCode(){
+        return hash;
+    }
+}
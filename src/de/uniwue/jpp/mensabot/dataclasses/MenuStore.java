@@ -0,0 +1,120 @@
+package de.uniwue.jpp.mensabot.dataclasses;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//column oriented read only copy of a list of menus for analysis
+//menu i has the date epochDay[i] and the meals mealStart[i] (inclusive) to mealStart[i+1] (exclusive),
+//meal j costs priceCents[j] and is called names[nameId[j]]
+//menus and meals keep the order of the list and of getMeals, so results equal the ones on the list
+public final class MenuStore {
+    private final int[] epochDay;
+    private final int[] mealStart;
+    private final int[] priceCents;
+    private final int[] nameId;
+    private final String[] names;
+
+    private MenuStore(int[] epochDay, int[] mealStart, int[] priceCents, int[] nameId, String[] names) {
+        this.epochDay = epochDay;
+        this.mealStart = mealStart;
+        this.priceCents = priceCents;
+        this.nameId = nameId;
+        this.names = names;
+    }
+
+    static public MenuStore createMenuStore(List<Menu> data) {
+        if(data == null) throw new IllegalArgumentException("Es muss eine Liste an Menüs übergeben werden");
+
+        int[] epochDay = new int[data.size()];
+        int[] mealStart = new int[data.size() + 1];
+        int mealCount = 0;
+        for (int i = 0; i < data.size(); i++) {
+            Menu menu = data.get(i);
+            if(menu == null) throw new IllegalArgumentException("In der Liste darf kein undefiniertes Menü enthalten sein");
+            epochDay[i] = Math.toIntExact(menu.getDate().toEpochDay());
+            mealStart[i] = mealCount;
+            mealCount += menu.getMeals().size();
+        }
+        mealStart[data.size()] = mealCount;
+
+        int[] priceCents = new int[mealCount];
+        int[] nameId = new int[mealCount];
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int j = 0;
+        for (Menu menu : data) {
+            for (Meal meal : menu.getMeals()) {
+                priceCents[j] = meal.getPriceInCent();
+                nameId[j] = ids.computeIfAbsent(meal.getName(), name -> {
+                    names.add(name);
+                    return names.size() - 1;
+                });
+                j++;
+            }
+        }
+        return new MenuStore(epochDay, mealStart, priceCents, nameId, names.toArray(new String[0]));
+    }
+
+    public int size() {
+        return epochDay.length;
+    }
+
+    public boolean isEmpty() {
+        return epochDay.length == 0;
+    }
+
+    public int getEpochDay(int menu) {
+        return epochDay[menu];
+    }
+
+    public LocalDate getDate(int menu) {
+        return LocalDate.ofEpochDay(epochDay[menu]);
+    }
+
+    //index of the first meal of the menu
+    public int getMealStart(int menu) {
+        return mealStart[menu];
+    }
+
+    //index after the last meal of the menu
+    public int getMealEnd(int menu) {
+        return mealStart[menu + 1];
+    }
+
+    public int getMealCount() {
+        return priceCents.length;
+    }
+
+    public int getPrice(int meal) {
+        return priceCents[meal];
+    }
+
+    public int getNameId(int meal) {
+        return nameId[meal];
+    }
+
+    public int getNameCount() {
+        return names.length;
+    }
+
+    public String getName(int nameId) {
+        return names[nameId];
+    }
+
+    public Meal getMeal(int meal) {
+        return MealPool.SHARED.getMeal(names[nameId[meal]], priceCents[meal]);
+    }
+
+    //recreates the menus in their original order
+    public List<Menu> toMenus() {
+        List<Menu> menus = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            Set<Meal> meals = new HashSet<>();
+            for (int j = getMealStart(i); j < getMealEnd(i); j++) {
+                meals.add(getMeal(j));
+            }
+            menus.add(Menu.createMenu(getDate(i), meals));
+        }
+        return menus;
+    }
+}
@@ -0,0 +1,109 @@
+package de.uniwue.jpp.mensabot.dataclasses;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//immutable menu created by Menu.createMenu, the meals are kept in an array sorted by name and price
+//getMeals returns the same read only view on every call
+final class MenuValue implements Menu {
+    static final Comparator<Meal> MEAL_ORDER = Comparator.comparing(Meal::getName).thenComparingInt(Meal::getPriceInCent);
+
+    private final LocalDate date;
+    private final Meal[] meals;
+    private final Set<Meal> mealView;
+    private final int hash;
+
+    MenuValue(LocalDate date, Collection<Meal> meals) {
+        Meal[] sorted = meals.toArray(new Meal[0]);
+        Arrays.sort(sorted, MEAL_ORDER);
+
+        //the given set may consider meals different that are equal by name and price
+        int size = 0;
+        for (Meal meal : sorted) {
+            if (size == 0 || !sorted[size - 1].equals(meal)) {
+                sorted[size++] = meal;
+            }
+        }
+
+        this.date = date;
+        this.meals = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+        this.mealView = new MealView();
+        this.hash = date.hashCode();
+    }
+
+    @Override
+    public LocalDate getDate() {
+        return date;
+    }
+
+    @Override
+    public Set<Meal> getMeals() {
+        return mealView;
+    }
+
+    @Override
+    public String toCsvLine() {
+        StringBuilder menuCSV = new StringBuilder();
+        menuCSV.append(date.toString());
+        for(Meal m : meals){
+            menuCSV.append(";").append(m.getName()).append("_").append(m.getPriceInCent());
+        }
+        return menuCSV.toString();
+    }
+
+    @Override
+    public String toString(){
+        return toCsvLine();
+    }
+
+    //menus are identified by their date
+    @Override
+    public boolean equals(Object o){
+        if(!(o instanceof Menu other)){
+            return false;
+        }
+        return hash == other.hashCode() && date.equals(other.getDate());
+    }
+
+    @Override
+    public int hashCode(){
+        return hash;
+    }
+
+    private class MealView extends AbstractSet<Meal> {
+        @Override
+        public Iterator<Meal> iterator() {
+            return new Iterator<>() {
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < meals.length;
+                }
+
+                @Override
+                public Meal next() {
+                    if (next >= meals.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return meals[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return meals.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Meal meal && meal.getName() != null && Arrays.binarySearch(meals, meal, MEAL_ORDER) >= 0;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return meals.clone();
+        }
+    }
+}
@@ -9,7 +9,11 @@ import de.uniwue.jpp.mensabot.retrieval.Saver;
 import de.uniwue.jpp.mensabot.sending.Importer;
 import de.uniwue.jpp.mensabot.sending.Sender;
 import de.uniwue.jpp.mensabot.sending.formatting.Formatter;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.AnalysisContext;
 import de.uniwue.jpp.mensabot.sending.formatting.analyze.Analyzer;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.DoubleTimeSeries;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.IncrementalStatistics;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.IntTimeSeries;
 import javafx.application.Application;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
@@ -88,6 +92,7 @@ public class MensabotGui extends Application {
     /*-----------------------------------------------------------------------------------------
     Global variables for GUI
     -----------------------------------------------------------------------------------------*/
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
     private final ObservableList<Formatter> formatterList = FXCollections.observableArrayList();
     private final ObservableList<Analyzer<?>> selectedAnalyzerList = FXCollections.observableArrayList();
     private static final ObservableList<Menu> logData = FXCollections.observableArrayList();
@@ -99,6 +104,7 @@ public class MensabotGui extends Application {
     private boolean fcGenerateComplex = false;
     private Menu menuToday;
     private Path logfile = Path.of("log.csv");
+    private IncrementalStatistics allTimeStatistics;
 
 
     /*------------------------------------------------------------------------------------------------------------------------------------------
@@ -130,33 +136,8 @@ public class MensabotGui extends Application {
 
         dgPieChart.setData(pieChartData);
 
-        //listener, to add fetched data to diagrams
-        logData.addListener((ListChangeListener<Menu>) c -> {
-            while(c.next()){
-                if(c.wasAdded()){
-                    for(Menu menu : c.getAddedSubList()){
-                        List<Menu> menuAsList = new ArrayList<>();
-                        menuAsList.add(menu);
-                        seriesAverage.getData().add(new XYChart.Data<>(menu.getDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")), Analyzer.createAveragePriceAnalyzer().analyze(menuAsList).get().doubleValue()/100));
-                        seriesTotal.getData().add(new XYChart.Data<>(menu.getDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")), Analyzer.createTotalPriceAnalyzer().analyze(menuAsList).get().doubleValue()/100));
-                        seriesMealCount.getData().add(new XYChart.Data<>(menu.getDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")), menu.getMeals().size()));
-                        sortDiagrams();
-
-                        pieChartData.clear();
-                        OptionalWithMessage<List<Integer>> priceRange = Analyzer.createPriceRangeAnalyzer(5, 100).analyze(logDataSorted);
-                        pieChartData.addAll(
-                                new PieChart.Data("0\u20ac-1\u20ac", priceRange.get().get(0)),
-                                new PieChart.Data("1\u20ac-2\u20ac", priceRange.get().get(1)),
-                                new PieChart.Data("2\u20ac-3\u20ac", priceRange.get().get(2)),
-                                new PieChart.Data("3\u20ac-4\u20ac", priceRange.get().get(3)),
-                                new PieChart.Data("4\u20ac-5\u20ac", priceRange.get().get(4)),
-                                new PieChart.Data(">5\u20ac", priceRange.get().get(5))
-                        );
-                        pieChartData.removeIf(p -> p.getPieValue() == 0);
-                    }
-                }
-            }
-        });
+        //listener, to show the changed data in the diagrams, every change analyzes the whole log again
+        logData.addListener((ListChangeListener<Menu>) c -> updateDiagrams());
 
         formatterList.addAll(
                 Formatter.createSimpleFormatter(),
@@ -177,7 +158,8 @@ public class MensabotGui extends Application {
                 Analyzer.createMedianPriceAnalyzer(),
                 Analyzer.createMinPriceMealAnalyzer(),
                 Analyzer.createMaxPriceMealAnalyzer(),
-                Analyzer.createTotalPriceAnalyzer()
+                Analyzer.createTotalPriceAnalyzer(),
+                Analyzer.createTopPopularityAnalyzer(3)
         );
         fcAvailableAnalyzers.setItems(analyzerList);
         fcSelectedAnalyzers.setItems(selectedAnalyzerList);
@@ -198,7 +180,8 @@ public class MensabotGui extends Application {
     public void ppFetchSave(){
         Fetcher fetcher = Fetcher.createDummyCsvFetcher();
         Parser parser = Parser.createCsvParser();
-        Saver saver = Saver.createCsvSaver();
+        //statistics that could not be loaded are not tracked, otherwise they would be stored without the rest of the log
+        Saver saver = allTimeStatistics == null ? Saver.createCsvSaver() : Saver.createTrackingSaver(Saver.createCsvSaver(), allTimeStatistics);
 
         OptionalWithMessage<Menu> fetchedMenu = fetcher.fetchCurrentData().flatMap(parser::parse);
         Optional<String> trySave = fetchedMenu.tryToConsume(s -> saver.log(logfile, s));
@@ -214,21 +197,21 @@ public class MensabotGui extends Application {
     }
     //imports the whole logfile
     private Optional<String> importLogfile(){
-        Importer importer = Importer.createCsvImporter();
-        logData.clear();
+        Importer importer = Importer.createParallelCsvImporter();
         try{
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logfile.toFile()), StandardCharsets.UTF_8));
-            OptionalWithMessage<List<Menu>> data = importer.getAll(reader);
+            OptionalWithMessage<List<Menu>> data = importer.getAll(logfile);
+            allTimeStatistics = data.map(menus -> IncrementalStatistics.load(logfile, menus)).orElse(null);
 
             if(data.isEmpty()){
-                return Optional.of("File is empty");
+                logData.clear();
+                return Optional.of(data.getMessage());
             }
 
-            return  data.consume(logData::addAll);
+            //setAll replaces the data with a single change, so the diagrams are only updated once
+            return  data.consume(logData::setAll);
 
-        }catch (FileNotFoundException e){
-            return Optional.of("FileNotFound");
         } catch (Exception e){
+            logData.clear();
             return Optional.of("UnexpectedException");
         }
     }
@@ -248,11 +231,52 @@ public class MensabotGui extends Application {
         }
     }
 
-    //sorts the diagram data ascending by date
-    private void sortDiagrams(){
-        seriesMealCount.getData().sort(Comparator.comparing(d -> LocalDate.parse(d.getXValue(), DateTimeFormatter.ofPattern("dd.MM.yyyy"))));
-        seriesTotal.getData().sort(Comparator.comparing(d -> LocalDate.parse(d.getXValue(), DateTimeFormatter.ofPattern("dd.MM.yyyy"))));
-        seriesAverage.getData().sort(Comparator.comparing(d -> LocalDate.parse(d.getXValue(), DateTimeFormatter.ofPattern("dd.MM.yyyy"))));
+    //fills the diagrams with one point per day of logData, the time series are ascending by date already
+    private void updateDiagrams(){
+        if(logData.isEmpty()){
+            refreshDiagrams();
+            return;
+        }
+
+        DoubleTimeSeries averages = Analyzer.createAveragePricePerDayAnalyzer().analyze(logData).get();
+        List<XYChart.Data<String, Double>> averagePoints = new ArrayList<>(averages.size());
+        for(int i = 0; i < averages.size(); i++){
+            averagePoints.add(new XYChart.Data<>(averages.getDate(i).format(DATE_FORMAT), averages.getValue(i)/100));
+        }
+        seriesAverage.getData().setAll(averagePoints);
+
+        DoubleTimeSeries totals = Analyzer.createTotalPricePerDayAnalyzer().analyze(logData).get();
+        List<XYChart.Data<String, Double>> totalPoints = new ArrayList<>(totals.size());
+        for(int i = 0; i < totals.size(); i++){
+            totalPoints.add(new XYChart.Data<>(totals.getDate(i).format(DATE_FORMAT), totals.getValue(i)/100));
+        }
+        seriesTotal.getData().setAll(totalPoints);
+
+        //not AmountOfDishesPerDayAnalyzer, the log may contain a day twice
+        int[] days = new int[logData.size()];
+        int[] mealCounts = new int[logData.size()];
+        for(int i = 0; i < logData.size(); i++){
+            days[i] = Math.toIntExact(logData.get(i).getDate().toEpochDay());
+            mealCounts[i] = logData.get(i).getMeals().size();
+        }
+        IntTimeSeries counts = IntTimeSeries.createIntTimeSeries(days, mealCounts);
+        List<XYChart.Data<String, Integer>> countPoints = new ArrayList<>(counts.size());
+        for(int i = 0; i < counts.size(); i++){
+            countPoints.add(new XYChart.Data<>(counts.getDate(i).format(DATE_FORMAT), counts.getValue(i)));
+        }
+        seriesMealCount.getData().setAll(countPoints);
+
+        pieChartData.clear();
+        OptionalWithMessage<List<Integer>> priceRange = Analyzer.createPriceRangeAnalyzer(5, 100).analyze(logDataSorted);
+        pieChartData.addAll(
+                new PieChart.Data("0\u20ac-1\u20ac", priceRange.get().get(0)),
+                new PieChart.Data("1\u20ac-2\u20ac", priceRange.get().get(1)),
+                new PieChart.Data("2\u20ac-3\u20ac", priceRange.get().get(2)),
+                new PieChart.Data("3\u20ac-4\u20ac", priceRange.get().get(3)),
+                new PieChart.Data("4\u20ac-5\u20ac", priceRange.get().get(4)),
+                new PieChart.Data(">5\u20ac", priceRange.get().get(5))
+        );
+        pieChartData.removeIf(p -> p.getPieValue() == 0);
     }
 
     //delets all data from diagrams
@@ -269,7 +293,7 @@ public class MensabotGui extends Application {
     private void setupLogViewerTable(){
         lvTable.getColumns().clear();
         TableColumn<Menu, String> dateColumn = new TableColumn<>("Datum");
-        dateColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getDate().format(DateTimeFormatter.ofPattern("dd.MM.yyyy"))));
+        dateColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getDate().format(DATE_FORMAT)));
 
         lvTable.getColumns().add(dateColumn);
         lvTable.setItems(logDataSorted);
@@ -297,8 +321,8 @@ public class MensabotGui extends Application {
         headlinesList.add("Teuerstes Gericht");
         headlinesList.add("Summe aller Preise");
 
-        ppMealTodayTitle.setText("Essen am " + dateForStats.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
-        ppStatsTodayTitle.setText("Statistiken f\u00fcr den " + dateForStats.format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+        ppMealTodayTitle.setText("Essen am " + dateForStats.format(DATE_FORMAT));
+        ppStatsTodayTitle.setText("Statistiken f\u00fcr den " + dateForStats.format(DATE_FORMAT));
 
         ppMealToday.setText("Leider gibt es an diesem Tag kein Essen in der Mensa");
         ppStatsTodayHeadline.setText("Leider gibt es an diesem Tag kein Essen in der Mensa");
@@ -321,14 +345,16 @@ public class MensabotGui extends Application {
             singleMenuList.add(menuToday);
             simpleMealFormatter.format(menuToday, () -> OptionalWithMessage.of(logDataSorted)).consume(ppMealToday::setText);
 
-            OptionalWithMessage<String> averagePriceToday = Analyzer.createAveragePriceAnalyzer().analyze(singleMenuList, Formatter::centToEuro);
-            OptionalWithMessage<String> medianToday = Analyzer.createMedianPriceAnalyzer().analyze(singleMenuList, Formatter::centToEuro);
-            OptionalWithMessage<String> mostExpensiveToday = Analyzer.createMaxPriceMealAnalyzer().analyze(singleMenuList, Meal::toString);
-            OptionalWithMessage<String> cheapestToday = Analyzer.createMinPriceMealAnalyzer().analyze(singleMenuList, Meal::toString);
-            OptionalWithMessage<String> sumToday = Analyzer.createTotalPriceAnalyzer().analyze(singleMenuList, Formatter::centToEuro);
-            OptionalWithMessage<String> mostPopularToday = Analyzer.createPopularityAnalyzer().analyze(singleMenuList, s -> s.get(0).toString());
-            OptionalWithMessage<String> sumOfMealsToday = Analyzer.createAmountOfDishesAnalyzer().analyze(singleMenuList, Object::toString);
-            OptionalWithMessage<String> standardDeviationToday = Analyzer.createStandardDeviationAnalyzer().analyze(singleMenuList, Formatter::centToEuro);
+            //the analyzers share the histogram and the sums of the menu
+            AnalysisContext today = AnalysisContext.createAnalysisContext(singleMenuList);
+            OptionalWithMessage<String> averagePriceToday = Analyzer.createAveragePriceAnalyzer().analyze(today, Formatter::centToEuro);
+            OptionalWithMessage<String> medianToday = Analyzer.createMedianPriceAnalyzer().analyze(today, Formatter::centToEuro);
+            OptionalWithMessage<String> mostExpensiveToday = Analyzer.createMaxPriceMealAnalyzer().analyze(today, Meal::toString);
+            OptionalWithMessage<String> cheapestToday = Analyzer.createMinPriceMealAnalyzer().analyze(today, Meal::toString);
+            OptionalWithMessage<String> sumToday = Analyzer.createTotalPriceAnalyzer().analyze(today, Formatter::centToEuro);
+            OptionalWithMessage<String> mostPopularToday = Analyzer.createTopPopularityAnalyzer(1).analyze(today, s -> s.get(0).toString());
+            OptionalWithMessage<String> sumOfMealsToday = Analyzer.createAmountOfDishesAnalyzer().analyze(today, Object::toString);
+            OptionalWithMessage<String> standardDeviationToday = Analyzer.createStandardDeviationAnalyzer().analyze(today, Formatter::centToEuro);
 
 
             StringBuilder headlineBuilder = new StringBuilder();
@@ -360,14 +386,16 @@ public class MensabotGui extends Application {
             sumOfMealsToday.consume(stSumOfMealsToday::setText);
         }
 
-        stAveragePriceAll.setText(Analyzer.createAveragePriceAnalyzer().analyze(logDataSorted, Formatter::centToEuro).orElse("Keine Daten vorhanden"));
-        stMostExpensiveAll.setText(Analyzer.createMaxPriceMealAnalyzer().analyze(logDataSorted, Meal::toString).orElse("Keine Daten vorhanden"));
-        stCheapestAll.setText(Analyzer.createMinPriceMealAnalyzer().analyze(logDataSorted, Meal::toString).orElse("Keine Daten vorhanden"));
-        stSumAll.setText(Analyzer.createTotalPriceAnalyzer().analyze(logDataSorted, Formatter::centToEuro).orElse("Keine Daten vorhanden"));
-        stMostPopularAll.setText(Analyzer.createPopularityAnalyzer().analyze(logDataSorted, s -> s.get(0).toString()).orElse("Keine Daten vorhanden"));
-        stMedianPriceAll.setText(Analyzer.createMedianPriceAnalyzer().analyze(logDataSorted, Formatter::centToEuro).orElse("Keine Daten vorhanden"));
-        stSumOfMealsAll.setText(Analyzer.createAmountOfDishesAnalyzer().analyze(logDataSorted, Object::toString).orElse("Keine Daten vorhanden"));
-        stStandardDeviationAll.setText(Analyzer.createStandardDeviationAnalyzer().analyze(logDataSorted, Formatter::centToEuro).orElse("Keine Daten vorhanden"));
+        //all-time stats are read from the incrementally updated statistics of the log
+        IncrementalStatistics allTimeStatistics = this.allTimeStatistics == null ? IncrementalStatistics.createEmpty(logfile) : this.allTimeStatistics;
+        stAveragePriceAll.setText(allTimeStatistics.getAveragePrice().map(Formatter::centToEuro).orElse("Keine Daten vorhanden"));
+        stMostExpensiveAll.setText(allTimeStatistics.getMostExpensiveMeal().map(Meal::toString).orElse("Keine Daten vorhanden"));
+        stCheapestAll.setText(allTimeStatistics.getCheapestMeal().map(Meal::toString).orElse("Keine Daten vorhanden"));
+        stSumAll.setText(allTimeStatistics.getTotalPrice().map(Formatter::centToEuro).orElse("Keine Daten vorhanden"));
+        stMostPopularAll.setText(allTimeStatistics.getMostPopular(1).map(s -> s.get(0).toString()).orElse("Keine Daten vorhanden"));
+        stMedianPriceAll.setText(allTimeStatistics.getMedian().map(Formatter::centToEuro).orElse("Keine Daten vorhanden"));
+        stSumOfMealsAll.setText(allTimeStatistics.getNumberOfMeals().map(Object::toString).orElse("Keine Daten vorhanden"));
+        stStandardDeviationAll.setText(allTimeStatistics.getAnalyzerStandardDeviation().map(Formatter::centToEuro).orElse("Keine Daten vorhanden"));
     }
 
     private void getMenuByDate(LocalDate date) {
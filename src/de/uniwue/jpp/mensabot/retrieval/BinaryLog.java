@@ -0,0 +1,402 @@
+package de.uniwue.jpp.mensabot.retrieval;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.MealPool;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+
+/*-------------------------------------------------------------------------------------------------------------------------------------
+Binary logfile format used by Saver.createBinarySaver() and Importer.createBinaryImporter()
+
+The log consists of the header "MBL1" followed by one record per menu in chronological order (oldest first):
+- date:         4 byte epoch day
+- meal count:   varint
+- name ids:     one varint per meal, index into the dictionary
+- prices:       one varint per meal, price in cent
+- length:       4 byte length of the record without this field, used to read the log backwards
+
+The meal names are stored once in the dictionary file next to the log (<logfile>.dict), which consists of the header
+"MBD1" followed by the UTF-8 encoded names, each prefixed with its length as varint. The id of a name is its position.
+-------------------------------------------------------------------------------------------------------------------------------------*/
+
+public class BinaryLog {
+    static final byte[] LOG_HEADER = {'M', 'B', 'L', '1'};
+    static final byte[] DICTIONARY_HEADER = {'M', 'B', 'D', '1'};
+
+    private BinaryLog() {}
+
+    public static Path getDictionaryPath(Path logfile) {
+        return logfile.resolveSibling(logfile.getFileName() + ".dict");
+    }
+
+    //meal names of a binary log, new names are collected until they are appended to the dictionary file
+    public static class Dictionary {
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private long fileSize = 0;
+
+        public int size() {
+            return names.size();
+        }
+
+        public String getName(int id) {
+            return names.get(id);
+        }
+
+        int getOrAddId(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(pending, bytes.length);
+                pending.writeBytes(bytes);
+            }
+            return id;
+        }
+
+        //appends all names added since the last flush to the dictionary file
+        void flush(Path dictionaryFile, boolean force) throws IOException {
+            if (pending.size() == 0) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(dictionaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.wrap(DICTIONARY_HEADER);
+                if (channel.size() == 0) {
+                    writeFully(channel, header, 0);
+                }
+                writeFully(channel, ByteBuffer.wrap(pending.toByteArray()), channel.size());
+                if (force) {
+                    channel.force(false);
+                }
+                fileSize = channel.size();
+            }
+            pending.reset();
+        }
+
+        //true if the dictionary file was not changed since it was read or flushed by this dictionary
+        boolean isUpToDate(Path dictionaryFile) throws IOException {
+            return pending.size() == 0 && Files.exists(dictionaryFile) && Files.size(dictionaryFile) == fileSize;
+        }
+    }
+
+    public static OptionalWithMessage<Dictionary> readDictionary(Path logfile) {
+        Path dictionaryFile = getDictionaryPath(logfile);
+        Dictionary dictionary = new Dictionary();
+        if (!Files.exists(dictionaryFile)) {
+            return OptionalWithMessage.of(dictionary);
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dictionaryFile));
+            if (!hasHeader(buffer, DICTIONARY_HEADER)) {
+                return OptionalWithMessage.ofMsg("Import failure - Invalid dictionary file");
+            }
+            while (buffer.hasRemaining()) {
+                int length = readVarInt(buffer);
+                if (length < 0 || length > buffer.remaining()) {
+                    return OptionalWithMessage.ofMsg("Import failure - Invalid dictionary file");
+                }
+                String name = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                dictionary.ids.put(name, dictionary.names.size());
+                dictionary.names.add(name);
+            }
+            dictionary.fileSize = buffer.limit();
+            return OptionalWithMessage.of(dictionary);
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - Dictionary could not be read");
+        }
+    }
+
+    //encodes a menu as record, names that are not part of the dictionary yet are added to it
+    static byte[] encode(Menu menu, Dictionary dictionary) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        int epochDay = (int) menu.getDate().toEpochDay();
+        record.write(epochDay >>> 24);
+        record.write(epochDay >>> 16);
+        record.write(epochDay >>> 8);
+        record.write(epochDay);
+
+        Collection<Meal> meals = menu.getMeals();
+        writeVarInt(record, meals.size());
+        for (Meal meal : meals) {
+            writeVarInt(record, dictionary.getOrAddId(meal.getName()));
+        }
+        for (Meal meal : meals) {
+            writeVarInt(record, meal.getPriceInCent());
+        }
+
+        int length = record.size();
+        record.write(length >>> 24);
+        record.write(length >>> 16);
+        record.write(length >>> 8);
+        record.write(length);
+        return record.toByteArray();
+    }
+
+    //reads all records of the log in file order (oldest first)
+    public static OptionalWithMessage<List<Menu>> readAll(Path logfile) {
+        OptionalWithMessage<Dictionary> dictionary = readDictionary(logfile);
+        if (dictionary.isEmpty()) {
+            return OptionalWithMessage.ofMsg(dictionary.getMessage());
+        }
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return OptionalWithMessage.ofMsg("Import failure - File is too large to be mapped");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!hasHeader(buffer, LOG_HEADER)) {
+                return OptionalWithMessage.ofMsg("Import failure - File is not a binary log");
+            }
+            Map<Long, Meal> mealCache = new HashMap<>();
+            List<OptionalWithMessage<Menu>> menus = new ArrayList<>();
+            while (buffer.hasRemaining()) {
+                OptionalWithMessage<Menu> menu = decode(buffer, dictionary.get(), mealCache);
+                menus.add(menu);
+                if (menu.isEmpty()) {
+                    break;
+                }
+            }
+            return OptionalWithMessage.sequence(menus);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //reads the last record of the log
+    public static OptionalWithMessage<Menu> readLatest(Path logfile) {
+        OptionalWithMessage<Dictionary> dictionary = readDictionary(logfile);
+        if (dictionary.isEmpty()) {
+            return OptionalWithMessage.ofMsg(dictionary.getMessage());
+        }
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            return decodeLast(channel, dictionary.get()).orElse(OptionalWithMessage.ofMsg("Import failure - File is empty"));
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //appends the menus to the log if each of them is newer than the one before and the first is newer than the last record
+    //the records are written in bursts, the new names of a burst are written to the dictionary in front of it
+    //if a menu is out of order the records written so far are cut off again, names already in the dictionary are kept unused
+    //a partly written record at the end of the log is cut off first, see recoverLast
+    static Optional<String> append(FileChannel channel, Path logfile, Dictionary dictionary, Iterator<Menu> newMenus, Saver.SyncPolicy syncPolicy) throws IOException {
+        boolean emptyLog = channel.size() == 0;
+        if (!emptyLog) {
+            ByteBuffer header = ByteBuffer.allocate(Math.min(LOG_HEADER.length, (int) channel.size()));
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.limit() < LOG_HEADER.length && Arrays.equals(header.array(), 0, header.limit(), LOG_HEADER, 0, header.limit())) {
+                //the header itself was not completely written
+                channel.truncate(0);
+                emptyLog = true;
+            } else if (!hasHeader(header, LOG_HEADER)) {
+                return Optional.of("Logfile is not a binary log - not writing to log.");
+            }
+        }
+
+        LocalDate latestDate = null;
+        Optional<OptionalWithMessage<Menu>> lastLog = decodeLast(channel, dictionary);
+        if (lastLog.isPresent() && lastLog.get().isEmpty()) {
+            lastLog = recoverLast(channel, dictionary);
+        }
+        if (lastLog.isPresent()) {
+            if (lastLog.get().isEmpty()) {
+                return Optional.of("Latest log entry is invalid");
+            }
+            latestDate = lastLog.get().get().getDate();
+        }
+
+        RecordWriter writer = new RecordWriter(channel, syncPolicy, () -> dictionary.flush(getDictionaryPath(logfile), syncPolicy != Saver.SyncPolicy.NONE));
+        try {
+            if (emptyLog) {
+                writer.addPrefix(LOG_HEADER);
+            }
+            while (newMenus.hasNext()) {
+                Menu newMenu = newMenus.next();
+                if (latestDate != null && !latestDate.isBefore(newMenu.getDate())) {
+                    writer.rollback();
+                    return Optional.of("Date of new entry is older than date of last entry - not writing to log.");
+                }
+                latestDate = newMenu.getDate();
+                writer.addRecord(encode(newMenu, dictionary));
+            }
+            writer.finish();
+        } catch (IOException e) {
+            writer.rollback();
+            throw e;
+        }
+        return Optional.empty();
+    }
+
+    //decodes the record starting at the position of the buffer and moves the position behind it
+    static OptionalWithMessage<Menu> decode(ByteBuffer buffer, Dictionary dictionary, Map<Long, Meal> mealCache) {
+        try {
+            int start = buffer.position();
+            LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+            int mealCount = readVarInt(buffer);
+            if (mealCount <= 0 || mealCount > buffer.remaining()) {
+                return OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry");
+            }
+            int[] nameIds = new int[mealCount];
+            for (int i = 0; i < mealCount; i++) {
+                nameIds[i] = readVarInt(buffer);
+                if (nameIds[i] < 0 || nameIds[i] >= dictionary.size()) {
+                    return OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry");
+                }
+            }
+            Set<Meal> meals = new HashSet<>();
+            for (int i = 0; i < mealCount; i++) {
+                int price = readVarInt(buffer);
+                String name = dictionary.getName(nameIds[i]);
+                meals.add(mealCache.computeIfAbsent(((long) nameIds[i] << 32) | (price & 0xffffffffL), key -> MealPool.SHARED.getMeal(name, price)));
+            }
+            int length = buffer.position() - start;
+            if (buffer.getInt() != length) {
+                return OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry");
+            }
+            return OptionalWithMessage.of(Menu.createMenu(date, meals));
+        } catch (RuntimeException e) {
+            return OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry");
+        }
+    }
+
+    //decodes the last record of the log, returns an empty optional if the log contains no records
+    static Optional<OptionalWithMessage<Menu>> decodeLast(FileChannel channel, Dictionary dictionary) throws IOException {
+        long size = channel.size();
+        if (size <= LOG_HEADER.length) {
+            return Optional.empty();
+        }
+        if (size < LOG_HEADER.length + 4) {
+            return Optional.of(OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry"));
+        }
+        ByteBuffer lengthField = ByteBuffer.allocate(4);
+        readFully(channel, lengthField, size - 4);
+        int length = lengthField.getInt(0);
+        if (length <= 0 || length > size - LOG_HEADER.length - 4) {
+            return Optional.of(OptionalWithMessage.ofMsg("Import failure - Invalid binary log entry"));
+        }
+        ByteBuffer record = ByteBuffer.allocate(length + 4);
+        readFully(channel, record, size - 4 - length);
+        record.flip();
+        return Optional.of(decode(record, dictionary, new HashMap<>()));
+    }
+
+    //cuts the log back to the end of its last complete record, e.g. after a crash while appending
+    //the length field of a partly written record can not be trusted, so the records are skipped from the start of the log
+    //the last complete record is decoded like by decodeLast, nothing is cut off if it is invalid as well
+    static Optional<OptionalWithMessage<Menu>> recoverLast(FileChannel channel, Dictionary dictionary) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            return Optional.of(OptionalWithMessage.ofMsg("Import failure - File is too large to be mapped"));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        readFully(channel, buffer, 0);
+        buffer.flip().position(LOG_HEADER.length);
+
+        int lastStart = -1;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            if (!skipRecord(buffer)) {
+                buffer.position(start);
+                break;
+            }
+            lastStart = start;
+        }
+        if (lastStart < 0) {
+            channel.truncate(LOG_HEADER.length);
+            return Optional.empty();
+        }
+
+        OptionalWithMessage<Menu> lastLog = decode(buffer.duplicate().position(lastStart), dictionary, new HashMap<>());
+        if (lastLog.isPresent()) {
+            channel.truncate(buffer.position());
+        }
+        return Optional.of(lastLog);
+    }
+
+    //moves the position of the buffer behind the record starting at it, returns false if the record is not complete
+    //only the structure of the record is checked, the name ids are not looked up
+    private static boolean skipRecord(ByteBuffer buffer) {
+        try {
+            int start = buffer.position();
+            buffer.getInt();
+            int mealCount = readVarInt(buffer);
+            if (mealCount <= 0 || mealCount > buffer.remaining()) {
+                return false;
+            }
+            for (int i = 0; i < 2 * mealCount; i++) {
+                readVarInt(buffer);
+            }
+            int length = buffer.position() - start;
+            return buffer.getInt() == length;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    static boolean hasHeader(ByteBuffer buffer, byte[] header) {
+        if (buffer.remaining() < header.length) {
+            return false;
+        }
+        for (byte b : header) {
+            if (buffer.get() != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+}
@@ -1,11 +1,15 @@
 package de.uniwue.jpp.mensabot.retrieval;
 
 import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.MealPool;
 import de.uniwue.jpp.mensabot.dataclasses.Menu;
 import de.uniwue.jpp.errorhandling.OptionalWithMessage;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -13,36 +17,205 @@ public interface Parser {
 
     OptionalWithMessage<Menu> parse(String fetched);
 
+    //parses the UTF-8 encoded line between the indices from (inclusive) and to (exclusive) of the given buffer
+    //the default implementation decodes the whole line and delegates to parse(String)
+    default OptionalWithMessage<Menu> parse(ByteBuffer buffer, int from, int to) {
+        byte[] line = new byte[to - from];
+        buffer.get(from, line);
+        return parse(new String(line, StandardCharsets.UTF_8));
+    }
+
     //creates a new parser for meals in csv format, note that the String musst be formated as following
     //YYYY-MM-DD;<MealName1>_<Price>;<MealName2>_<Price>
+    //equal meals are shared through MealPool.SHARED
     static Parser createCsvParser() {
+        return createCsvParser(MealPool.SHARED);
+    }
+
+    //same as above, meals are taken from the given pool
+    static Parser createCsvParser(MealPool pool) {
+        if(pool == null) throw new NullPointerException("No meal pool given");
         return new Parser() {
+            //single pass over the characters, the positions of names and prices are remembered while the line is validated
+            //meals are only created once the whole line matched YYYY-MM-DD(;<name without _ and ;>_<digits>)*
             @Override
             public OptionalWithMessage<Menu> parse(String fetched) {
-                Set<Meal> mealSet = new HashSet<>();
+                int length = fetched.length();
+                if(length < 10 || !isDigits(fetched, 0, 4) || fetched.charAt(4) != '-'
+                        || !isDigits(fetched, 5, 7) || fetched.charAt(7) != '-' || !isDigits(fetched, 8, 10)){
+                    return inputMismatch(fetched);
+                }
+
+                //three entries per meal: start of the name, position of the "_" and end of the price
+                int[] bounds = new int[12];
+                int boundsSize = 0;
+                for(int pos = 10; pos < length; ){
+                    if(fetched.charAt(pos) != ';'){
+                        return inputMismatch(fetched);
+                    }
+                    int nameStart = ++pos;
+                    char c;
+                    while(pos < length && (c = fetched.charAt(pos)) != '_' && c != ';'){
+                        pos++;
+                    }
+                    if(pos == length || fetched.charAt(pos) != '_'){
+                        return inputMismatch(fetched);
+                    }
+                    int underscore = pos++;
+                    while(pos < length && (c = fetched.charAt(pos)) != ';'){
+                        if(c < '0' || c > '9'){
+                            return inputMismatch(fetched);
+                        }
+                        pos++;
+                    }
+                    if(pos == underscore + 1){
+                        return inputMismatch(fetched);
+                    }
+                    if(boundsSize == bounds.length){
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[boundsSize++] = nameStart;
+                    bounds[boundsSize++] = underscore;
+                    bounds[boundsSize++] = pos;
+                }
+
+                //checks if date is valid and parses
                 LocalDate date;
+                try{
+                    date = LocalDate.of(digitsToInt(fetched, 0, 4), digitsToInt(fetched, 5, 7), digitsToInt(fetched, 8, 10));
+                } catch (DateTimeException dte){
+                    return OptionalWithMessage.ofMsg("Invalid date");
+                }
 
-                if(!(fetched.matches("[0-9]{4}-[0-9]{2}-[0-9]{2}(;[^_;]*_[0-9]+)*"))){
-                    return OptionalWithMessage.ofMsg("Input does not match! Input was: '" + fetched +"'");
+                Set<Meal> mealSet = new HashSet<>();
+                for(int i = 0; i < boundsSize; i += 3){
+                    mealSet.add(pool.getMeal(fetched.substring(bounds[i], bounds[i + 1]), priceToInt(fetched, bounds[i + 1] + 1, bounds[i + 2])));
                 }
 
-                String[] input = fetched.split(";");
-                String[] singleMeal;
+                return OptionalWithMessage.of(Menu.createMenu(date, mealSet));
+            }
 
-                //checks if date is valid and parses
+            private OptionalWithMessage<Menu> inputMismatch(String fetched){
+                return OptionalWithMessage.ofMsg("Input does not match! Input was: '" + fetched +"'");
+            }
+
+            private boolean isDigits(CharSequence line, int from, int to){
+                for(int i = from; i < to; i++){
+                    if(line.charAt(i) < '0' || line.charAt(i) > '9'){
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private int digitsToInt(CharSequence line, int from, int to){
+                int value = 0;
+                for(int i = from; i < to; i++){
+                    value = value * 10 + (line.charAt(i) - '0');
+                }
+                return value;
+            }
+
+            //prices with more than nine digits may overflow and are left to Integer.parseInt, which throws like before
+            private int priceToInt(CharSequence line, int from, int to){
+                if(to - from > 9){
+                    return Integer.parseInt(line, from, to, 10);
+                }
+                return digitsToInt(line, from, to);
+            }
+
+            //works directly on the bytes of the line, only the meal names are decoded
+            //accepts exactly the same lines as parse(String) and returns the same messages
+            @Override
+            public OptionalWithMessage<Menu> parse(ByteBuffer buffer, int from, int to) {
+                if(to - from < 10 || !isDigits(buffer, from, from + 4) || buffer.get(from + 4) != '-'
+                        || !isDigits(buffer, from + 5, from + 7) || buffer.get(from + 7) != '-' || !isDigits(buffer, from + 8, from + 10)){
+                    return inputMismatch(buffer, from, to);
+                }
+
+                //same single pass as parse(String)
+                int[] bounds = new int[12];
+                int boundsSize = 0;
+                for(int pos = from + 10; pos < to; ){
+                    if(buffer.get(pos) != ';'){
+                        return inputMismatch(buffer, from, to);
+                    }
+                    int nameStart = ++pos;
+                    byte b;
+                    while(pos < to && (b = buffer.get(pos)) != '_' && b != ';'){
+                        pos++;
+                    }
+                    if(pos == to || buffer.get(pos) != '_'){
+                        return inputMismatch(buffer, from, to);
+                    }
+                    int underscore = pos++;
+                    while(pos < to && (b = buffer.get(pos)) != ';'){
+                        if(b < '0' || b > '9'){
+                            return inputMismatch(buffer, from, to);
+                        }
+                        pos++;
+                    }
+                    if(pos == underscore + 1){
+                        return inputMismatch(buffer, from, to);
+                    }
+                    if(boundsSize == bounds.length){
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                    }
+                    bounds[boundsSize++] = nameStart;
+                    bounds[boundsSize++] = underscore;
+                    bounds[boundsSize++] = pos;
+                }
+
+                LocalDate date;
                 try{
-                    date = LocalDate.parse(input[0]);
-                } catch (DateTimeParseException dtpe){
+                    date = LocalDate.of(digitsToInt(buffer, from, from + 4), digitsToInt(buffer, from + 5, from + 7), digitsToInt(buffer, from + 8, from + 10));
+                } catch (DateTimeException dte){
                     return OptionalWithMessage.ofMsg("Invalid date");
                 }
 
-                for(int i = 1; i < input.length; i++){
-                    singleMeal = input[i].split("_");
-                    mealSet.add(Meal.createMeal(singleMeal[0], Integer.parseInt(singleMeal[1])));
+                Set<Meal> mealSet = new HashSet<>();
+                byte[] nameBytes = new byte[to - from];
+                for(int i = 0; i < boundsSize; i += 3){
+                    int nameLength = bounds[i + 1] - bounds[i];
+                    buffer.get(bounds[i], nameBytes, 0, nameLength);
+                    mealSet.add(pool.getMeal(new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8), priceToInt(buffer, bounds[i + 1] + 1, bounds[i + 2])));
                 }
 
                 return OptionalWithMessage.of(Menu.createMenu(date, mealSet));
             }
+
+            private OptionalWithMessage<Menu> inputMismatch(ByteBuffer buffer, int from, int to){
+                byte[] line = new byte[to - from];
+                buffer.get(from, line);
+                return OptionalWithMessage.ofMsg("Input does not match! Input was: '" + new String(line, StandardCharsets.UTF_8) +"'");
+            }
+
+            private boolean isDigits(ByteBuffer buffer, int from, int to){
+                for(int i = from; i < to; i++){
+                    if(buffer.get(i) < '0' || buffer.get(i) > '9'){
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            private int digitsToInt(ByteBuffer buffer, int from, int to){
+                int value = 0;
+                for(int i = from; i < to; i++){
+                    value = value * 10 + (buffer.get(i) - '0');
+                }
+                return value;
+            }
+
+            //see priceToInt(CharSequence, int, int)
+            private int priceToInt(ByteBuffer buffer, int from, int to){
+                if(to - from > 9){
+                    byte[] digits = new byte[to - from];
+                    buffer.get(from, digits);
+                    return Integer.parseInt(new String(digits, StandardCharsets.US_ASCII));
+                }
+                return digitsToInt(buffer, from, to);
+            }
         };
     }
 }
@@ -0,0 +1,89 @@
+package de.uniwue.jpp.mensabot.retrieval;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+//appends the records of a batch to a log in bursts of about BURST_SIZE bytes, so a batch of any length needs little memory
+//everything written since the writer was created can be cut off again with rollback, which keeps a batch all or nothing
+final class RecordWriter {
+    static final int BURST_SIZE = 1 << 16;
+
+    //called in front of every burst, e.g. to write the names used by the records to the dictionary first
+    interface BeforeWrite {
+        void run() throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final Saver.SyncPolicy syncPolicy;
+    private final BeforeWrite beforeWrite;
+    private final long start;
+    private long position;
+
+    private final ByteArrayOutputStream burst = new ByteArrayOutputStream();
+    private int[] recordEnds = new int[64];
+    private int records = 0;
+    private boolean written = false;
+
+    RecordWriter(FileChannel channel, Saver.SyncPolicy syncPolicy, BeforeWrite beforeWrite) throws IOException {
+        this.channel = channel;
+        this.syncPolicy = syncPolicy;
+        this.beforeWrite = beforeWrite;
+        this.start = channel.size();
+        this.position = start;
+    }
+
+    //bytes written in front of the first record, e.g. the header of an empty log, they are dropped if no record follows
+    void addPrefix(byte[] bytes) {
+        burst.writeBytes(bytes);
+    }
+
+    void addRecord(byte[] record) throws IOException {
+        burst.writeBytes(record);
+        if (records == recordEnds.length) {
+            recordEnds = Arrays.copyOf(recordEnds, 2 * records);
+        }
+        recordEnds[records++] = burst.size();
+        if (burst.size() >= BURST_SIZE) {
+            writeBurst();
+        }
+    }
+
+    //writes the rest of the batch, with SyncPolicy.PER_BATCH the log is forced once at the end
+    void finish() throws IOException {
+        writeBurst();
+        if (syncPolicy == Saver.SyncPolicy.PER_BATCH && written) {
+            channel.force(false);
+        }
+    }
+
+    //cuts off everything written by this writer
+    void rollback() throws IOException {
+        if (written) {
+            channel.truncate(start);
+        }
+    }
+
+    private void writeBurst() throws IOException {
+        if (records == 0) {
+            return;
+        }
+        beforeWrite.run();
+        ByteBuffer data = ByteBuffer.wrap(burst.toByteArray());
+        if (syncPolicy == Saver.SyncPolicy.PER_RECORD) {
+            for (int i = 0; i < records; i++) {
+                data.limit(recordEnds[i]);
+                BinaryLog.writeFully(channel, data, position + data.position());
+                channel.force(false);
+            }
+        } else {
+            BinaryLog.writeFully(channel, data, position);
+        }
+        position += burst.size();
+        written = true;
+        burst.reset();
+        records = 0;
+    }
+}
@@ -2,17 +2,49 @@ package de.uniwue.jpp.mensabot.retrieval;
 
 import de.uniwue.jpp.errorhandling.OptionalWithMessage;
 import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.sending.Importer;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.IncrementalStatistics;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface Saver {
 
     Optional<String> log(Path path, Menu newMenu);
 
+    //controls when written data is forced to the storage device
+    enum SyncPolicy {
+        NONE,       //leave it to the operating system
+        PER_BATCH,  //once after all menus of a logAll call are written
+        PER_RECORD  //after every single menu
+    }
+
+    //logs several menus oldest first, the default implementation calls log for each menu and stops at the first error
+    default Optional<String> logAll(Path path, Collection<Menu> newMenus) {
+        return logAll(path, newMenus.stream());
+    }
+
+    default Optional<String> logAll(Path path, Stream<Menu> newMenus) {
+        Iterator<Menu> menus = newMenus.iterator();
+        while (menus.hasNext()) {
+            Optional<String> result = log(path, menus.next());
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
     static Saver createCsvSaver() {
         return new Saver() {
             @Override
@@ -48,4 +80,285 @@ public interface Saver {
             }
         };
     }
+
+    //creates a saver that appends new menus to the end of the logfile, so the log is stored in chronological order (oldest first)
+    //only the last line of the file is read to check the date, existing entries are never rewritten
+    //a last line without line break is finished with one if it is a valid entry and cut off otherwise, see recoverLastEntry
+    //logs written by this saver have to be read with Importer.createAppendingCsvImporter()
+    static Saver createAppendingCsvSaver() {
+        return new Saver() {
+            @Override
+            public Optional<String> log(Path path, Menu newMenu) {
+                List<String> notes = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    OptionalWithMessage<Optional<Menu>> lastLog = Saver.recoverLastEntry(channel, notes::add);
+                    if (lastLog.isEmpty()) {
+                        return Saver.withNotes(Optional.of(lastLog.getMessage()), notes);
+                    }
+                    if (lastLog.get().isPresent() && !lastLog.get().get().getDate().isBefore(newMenu.getDate())) {
+                        return Saver.withNotes(Optional.of("Date of new entry is older than date of last entry - not writing to log."), notes);
+                    }
+
+                    ByteBuffer line = ByteBuffer.wrap((newMenu.toCsvLine() + "\n").getBytes(StandardCharsets.UTF_8));
+                    channel.position(channel.size());
+                    while (line.hasRemaining()) {
+                        channel.write(line);
+                    }
+                } catch (IOException e) {
+                    return Saver.withNotes(Optional.of(e.toString()), notes);
+                }
+                return Saver.withNotes(Optional.empty(), notes);
+            }
+        };
+    }
+
+    //creates a saver for the same format as createAppendingCsvSaver() that writes a whole batch of menus at once
+    //the batch is written in bursts of bounded size while its order is validated, see RecordWriter
+    //if a menu is out of order everything written by the call is cut off again, so a batch is either written completely or not at all
+    static Saver createBatchingCsvSaver(SyncPolicy syncPolicy) {
+        if(syncPolicy == null) throw new NullPointerException("No sync policy given");
+        return new Saver() {
+            @Override
+            public Optional<String> log(Path path, Menu newMenu) {
+                return logAll(path, Stream.of(newMenu));
+            }
+
+            @Override
+            public Optional<String> logAll(Path path, Stream<Menu> newMenus) {
+                List<String> notes = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    OptionalWithMessage<Optional<Menu>> lastLog = Saver.recoverLastEntry(channel, notes::add);
+                    if (lastLog.isEmpty()) {
+                        return Saver.withNotes(Optional.of(lastLog.getMessage()), notes);
+                    }
+                    LocalDate latestDate = lastLog.get().map(Menu::getDate).orElse(null);
+
+                    RecordWriter writer = new RecordWriter(channel, syncPolicy, () -> {});
+                    try {
+                        Iterator<Menu> menus = newMenus.iterator();
+                        while (menus.hasNext()) {
+                            Menu newMenu = menus.next();
+                            if (latestDate != null && !latestDate.isBefore(newMenu.getDate())) {
+                                writer.rollback();
+                                return Saver.withNotes(Optional.of("Date of new entry is older than date of last entry - not writing to log."), notes);
+                            }
+                            latestDate = newMenu.getDate();
+                            writer.addRecord((newMenu.toCsvLine() + "\n").getBytes(StandardCharsets.UTF_8));
+                        }
+                        writer.finish();
+                    } catch (IOException e) {
+                        writer.rollback();
+                        throw e;
+                    }
+                } catch (IOException e) {
+                    return Saver.withNotes(Optional.of(e.toString()), notes);
+                }
+                return Saver.withNotes(Optional.empty(), notes);
+            }
+        };
+    }
+
+    //creates a saver for a segmented log as described in SegmentedLog, the path passed to log is the directory of the segments
+    //a new segment is started for every month, only the segment of the latest month and the manifest are written to
+    static Saver createSegmentedCsvSaver() {
+        return createSegmentedCsvSaver(0);
+    }
+
+    //same as above, but a new segment is started after menusPerSegment menus (every month if menusPerSegment <= 0)
+    static Saver createSegmentedCsvSaver(int menusPerSegment) {
+        return new Saver() {
+            private final Saver segmentSaver = Saver.createBatchingCsvSaver(SyncPolicy.NONE);
+
+            @Override
+            public Optional<String> log(Path path, Menu newMenu) {
+                return logAll(path, Stream.of(newMenu));
+            }
+
+            @Override
+            public Optional<String> logAll(Path path, Stream<Menu> newMenus) {
+                return SegmentedLog.append(path, newMenus.iterator(), menusPerSegment, segmentSaver);
+            }
+        };
+    }
+
+    //creates a saver for the binary log format described in BinaryLog, meal names are stored in a dictionary next to the log
+    //the dictionary is kept in memory between calls as long as the dictionary file is not changed by someone else
+    static Saver createBinarySaver() {
+        return createBinarySaver(SyncPolicy.NONE);
+    }
+
+    //logAll writes the records in bursts, the new names of each burst are written to the dictionary in front of it
+    static Saver createBinarySaver(SyncPolicy syncPolicy) {
+        if(syncPolicy == null) throw new NullPointerException("No sync policy given");
+        return new Saver() {
+            private Path dictionaryPath;
+            private BinaryLog.Dictionary dictionary;
+
+            @Override
+            public Optional<String> log(Path path, Menu newMenu) {
+                return logAll(path, Stream.of(newMenu));
+            }
+
+            @Override
+            public Optional<String> logAll(Path path, Stream<Menu> newMenus) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    Path currentDictionaryPath = BinaryLog.getDictionaryPath(path);
+                    if (dictionary == null || !currentDictionaryPath.equals(dictionaryPath) || !dictionary.isUpToDate(currentDictionaryPath)) {
+                        OptionalWithMessage<BinaryLog.Dictionary> readDictionary = BinaryLog.readDictionary(path);
+                        if (readDictionary.isEmpty()) {
+                            return Optional.of(readDictionary.getMessage());
+                        }
+                        dictionary = readDictionary.get();
+                        dictionaryPath = currentDictionaryPath;
+                    }
+                    Optional<String> result = BinaryLog.append(channel, path, dictionary, newMenus.iterator(), syncPolicy);
+                    if (result.isPresent()) {
+                        dictionary = null;
+                    }
+                    return result;
+                } catch (IOException e) {
+                    dictionary = null;
+                    return Optional.of(e.toString());
+                }
+            }
+        };
+    }
+
+    //logs with the given saver and adds every successfully logged menu to the statistics, which are stored after each call
+    //menus logged to another path than the log of the statistics are only passed on
+    //if storing the statistics fails the log is still written, IncrementalStatistics.load notices the outdated file and rebuilds it
+    //if a batch fails part way the stored statistics are removed and the statistics object should be loaded again
+    static Saver createTrackingSaver(Saver saver, IncrementalStatistics statistics) {
+        if(saver == null || statistics == null) throw new NullPointerException("At least one of the arguments was null");
+        Path trackedLog = statistics.getLogfile().toAbsolutePath().normalize();
+
+        return new Saver() {
+            @Override
+            public Optional<String> log(Path path, Menu newMenu) {
+                Optional<String> result = saver.log(path, newMenu);
+                if (!trackedLog.equals(path.toAbsolutePath().normalize())) {
+                    return result;
+                }
+                //a message may also report a removed incomplete entry next to a written one, the log is read again then
+                if (result.isPresent()) {
+                    statistics.invalidate();
+                    return result;
+                }
+                statistics.add(newMenu);
+                statistics.store();
+                return result;
+            }
+
+            @Override
+            public Optional<String> logAll(Path path, Stream<Menu> newMenus) {
+                if (!trackedLog.equals(path.toAbsolutePath().normalize())) {
+                    return saver.logAll(path, newMenus);
+                }
+                List<Menu> menus = newMenus.toList();
+                Optional<String> result = saver.logAll(path, menus);
+                if (result.isPresent()) {
+                    statistics.invalidate();
+                    return result;
+                }
+                menus.forEach(statistics::add);
+                statistics.store();
+                return result;
+            }
+        };
+    }
+
+    //imports all menus of a log with the given importer and writes them oldest first to the target log with the given saver
+    //e.g. convertLog(Path.of("log.csv"), Importer.createCsvImporter(), Path.of("log.bin"), Saver.createBinarySaver())
+    static Optional<String> convertLog(Path source, Importer importer, Path target, Saver saver) {
+        OptionalWithMessage<List<Menu>> menus = importer.getAll(source);
+        if (menus.isEmpty()) {
+            return Optional.of(menus.getMessage());
+        }
+        List<Menu> oldestFirst = new ArrayList<>(menus.get());
+        oldestFirst.sort(Comparator.comparing(Menu::getDate));
+        return saver.logAll(target, oldestFirst);
+    }
+
+    //returns the last entry of a log written oldest first by the appending or batching csv saver, an empty optional for an empty log
+    //these savers end every entry with a line break, a last line without one is either a complete entry written by someone else
+    //(e.g. by hand or by createCsvSaver), which is finished with a line break, or an entry that was not completely written
+    //(e.g. after a crash), which is cut off and reported to the notes, as the next entry would be glued to it otherwise
+    //complete lines are never removed, if the last of them can not be parsed the log is invalid
+    static private OptionalWithMessage<Optional<Menu>> recoverLastEntry(FileChannel channel, Consumer<String> notes) throws IOException {
+        Parser parser = Parser.createCsvParser();
+        long size = channel.size();
+        if (size > 0 && readByte(channel, size - 1) != '\n') {
+            long tailStart = lineStart(channel, size);
+            String tail = readString(channel, tailStart, Math.max(tailStart, skipLineBreaks(channel, size)));
+            if (tail.isEmpty() || parser.parse(tail).isPresent()) {
+                BinaryLog.writeFully(channel, ByteBuffer.wrap(new byte[]{'\n'}), size);
+                size++;
+            } else {
+                channel.truncate(tailStart);
+                size = tailStart;
+                notes.accept("Incomplete last log entry was removed: '" + tail + "'.");
+            }
+        }
+
+        long end = skipLineBreaks(channel, size);
+        if (end == 0) {
+            return OptionalWithMessage.of(Optional.empty());
+        }
+        OptionalWithMessage<Menu> lastLog = parser.parse(readString(channel, lineStart(channel, end), end));
+        if (lastLog.isEmpty()) {
+            return OptionalWithMessage.ofMsg("Latest log entry is invalid");
+        }
+        return OptionalWithMessage.of(Optional.of(lastLog.get()));
+    }
+
+    //adds the notes of recoverLastEntry to the result of a saver, so a removed entry is never reported as plain success
+    static private Optional<String> withNotes(Optional<String> result, List<String> notes) {
+        if (notes.isEmpty()) {
+            return result;
+        }
+        String note = String.join(" ", notes);
+        return Optional.of(result.map(message -> message + " " + note).orElse(note + " The new entries were written to log."));
+    }
+
+    //returns the position in front of the line breaks at the end of the first end bytes
+    static private long skipLineBreaks(FileChannel channel, long end) throws IOException {
+        while (end > 0) {
+            byte b = readByte(channel, end - 1);
+            if (b != '\n' && b != '\r') {
+                break;
+            }
+            end--;
+        }
+        return end;
+    }
+
+    //searches backwards for the line break in front of end and returns the position behind it, 0 if there is none
+    static private long lineStart(FileChannel channel, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(4096);
+        long position = end;
+        while (position > 0) {
+            int blockSize = (int) Math.min(block.capacity(), position);
+            position -= blockSize;
+            block.clear().limit(blockSize);
+            while (block.hasRemaining() && channel.read(block, position + block.position()) >= 0);
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    static private byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        channel.read(single, position);
+        return single.get(0);
+    }
+
+    static private String readString(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate((int) (end - start));
+        while (line.hasRemaining() && channel.read(line, start + line.position()) >= 0);
+        return new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+    }
 }
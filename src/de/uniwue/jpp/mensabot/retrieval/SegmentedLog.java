@@ -0,0 +1,157 @@
+package de.uniwue.jpp.mensabot.retrieval;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/*-------------------------------------------------------------------------------------------------------------------------------------
+Segmented log used by Saver.createSegmentedCsvSaver() and Importer.createSegmentedCsvImporter()
+
+The log is a directory of segments, each of them is a csv log in the format of Saver.createAppendingCsvSaver() (oldest first).
+A new segment is started for every month or after a fixed number of menus, only the last segment is ever written to.
+The file "manifest.csv" lists the segments oldest first, one line per segment:
+<segment file name>;<date of first menu>;<date of last menu>;<number of menus>
+-------------------------------------------------------------------------------------------------------------------------------------*/
+
+public class SegmentedLog {
+    public static final String MANIFEST_NAME = "manifest.csv";
+
+    private SegmentedLog() {}
+
+    public static class Segment {
+        private final String fileName;
+        private final LocalDate firstDate;
+        private final LocalDate lastDate;
+        private final int count;
+
+        Segment(String fileName, LocalDate firstDate, LocalDate lastDate, int count) {
+            this.fileName = fileName;
+            this.firstDate = firstDate;
+            this.lastDate = lastDate;
+            this.count = count;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public LocalDate getFirstDate() {
+            return firstDate;
+        }
+
+        public LocalDate getLastDate() {
+            return lastDate;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean overlaps(LocalDate from, LocalDate to) {
+            return !firstDate.isAfter(to) && !lastDate.isBefore(from);
+        }
+
+        String toCsvLine() {
+            return fileName + ";" + firstDate + ";" + lastDate + ";" + count;
+        }
+    }
+
+    //returns the segments listed in the manifest oldest first, a directory without manifest has no segments
+    public static OptionalWithMessage<List<Segment>> readManifest(Path directory) {
+        Path manifest = directory.resolve(MANIFEST_NAME);
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.exists(manifest)) {
+            return OptionalWithMessage.of(segments);
+        }
+        try {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = line.split(";");
+                if (fields.length != 4) {
+                    return OptionalWithMessage.ofMsg("Invalid manifest entry: '" + line + "'");
+                }
+                segments.add(new Segment(fields[0], LocalDate.parse(fields[1]), LocalDate.parse(fields[2]), Integer.parseInt(fields[3])));
+            }
+            return OptionalWithMessage.of(segments);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return OptionalWithMessage.ofMsg("Invalid manifest entry: " + e.getMessage());
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - Manifest could not be read");
+        }
+    }
+
+    //the manifest is written to a temporary file first and then moved over the old one, so it is never half written
+    static void writeManifest(Path directory, List<Segment> segments) throws IOException {
+        Path manifest = directory.resolve(MANIFEST_NAME);
+        Path temporary = directory.resolve(MANIFEST_NAME + ".tmp");
+        List<String> lines = segments.stream().map(Segment::toCsvLine).toList();
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    //appends the menus to the segments of the directory, menusPerSegment <= 0 starts a new segment for every month
+    //the manifest is written after each segment, so if a later segment fails the manifest still lists what was written before
+    //and a retry of the batch only has to write the rest, the segment saver checks the order against the real end of the last segment
+    static Optional<String> append(Path directory, Iterator<Menu> newMenus, int menusPerSegment, Saver segmentSaver) {
+        OptionalWithMessage<List<Segment>> readSegments = readManifest(directory);
+        if (readSegments.isEmpty()) {
+            return Optional.of(readSegments.getMessage());
+        }
+        List<Segment> segments = new ArrayList<>(readSegments.get());
+        LocalDate latestDate = segments.isEmpty() ? null : segments.get(segments.size() - 1).getLastDate();
+
+        //group the new menus by the index of the segment they belong to
+        Map<Integer, List<Menu>> newEntries = new LinkedHashMap<>();
+        while (newMenus.hasNext()) {
+            Menu newMenu = newMenus.next();
+            if (latestDate != null && !latestDate.isBefore(newMenu.getDate())) {
+                return Optional.of("Date of new entry is older than date of last entry - not writing to log.");
+            }
+            latestDate = newMenu.getDate();
+
+            Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            boolean startNewSegment = active == null || (menusPerSegment > 0
+                    ? active.getCount() >= menusPerSegment
+                    : !YearMonth.from(active.getLastDate()).equals(YearMonth.from(newMenu.getDate())));
+            if (startNewSegment) {
+                String fileName = menusPerSegment > 0
+                        ? String.format("segment-%06d.csv", segments.size() + 1)
+                        : YearMonth.from(newMenu.getDate()) + ".csv";
+                segments.add(new Segment(fileName, newMenu.getDate(), newMenu.getDate(), 1));
+            } else {
+                segments.set(segments.size() - 1, new Segment(active.getFileName(), active.getFirstDate(), newMenu.getDate(), active.getCount() + 1));
+            }
+            newEntries.computeIfAbsent(segments.size() - 1, index -> new ArrayList<>()).add(newMenu);
+        }
+        if (newEntries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<Integer, List<Menu>> entry : newEntries.entrySet()) {
+                Optional<String> result = segmentSaver.logAll(directory.resolve(segments.get(entry.getKey()).getFileName()), entry.getValue());
+                if (result.isPresent()) {
+                    return result;
+                }
+                writeManifest(directory, segments.subList(0, entry.getKey() + 1));
+            }
+        } catch (IOException e) {
+            return Optional.of(e.toString());
+        }
+        return Optional.empty();
+    }
+}
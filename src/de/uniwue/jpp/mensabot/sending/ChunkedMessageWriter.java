@@ -0,0 +1,103 @@
+package de.uniwue.jpp.mensabot.sending;
+
+import java.io.IOException;
+import java.io.Writer;
+
+//sends everything written to it as messages of at most maxLength characters, e.g. for Formatter.formatTo
+//at most one message is kept in memory, a message ends at the last line separator that fits into it and the separator
+//itself is not sent, a line that is too long is split; flush and close send the rest
+//full messages are sent right away, so if the text can not be completed the messages sent before are not taken back,
+//a caller that must not send partial texts has to format into a buffer first
+public final class ChunkedMessageWriter extends Writer {
+    private final Sender sender;
+    private final int maxLength;
+    private final StringBuilder pending;
+    private int sentMessages = 0;
+    private boolean closed = false;
+
+    private ChunkedMessageWriter(Sender sender, int maxLength) {
+        this.sender = sender;
+        this.maxLength = maxLength;
+        this.pending = new StringBuilder(Math.min(maxLength, 8192));
+    }
+
+    static public ChunkedMessageWriter createChunkedMessageWriter(Sender sender, int maxLength) {
+        if(sender == null) throw new NullPointerException("No sender given");
+        if(maxLength <= 0) throw new IllegalArgumentException("The maximal message length must be positive");
+        return new ChunkedMessageWriter(sender, maxLength);
+    }
+
+    public int getSentMessages() {
+        return sentMessages;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        if(closed) throw new IOException("Writer was closed");
+        while (length > 0) {
+            if (pending.length() == maxLength) {
+                sendFullMessage();
+            }
+            int part = Math.min(length, maxLength - pending.length());
+            pending.append(buffer, offset, part);
+            offset += part;
+            length -= part;
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        if(closed) throw new IOException("Writer was closed");
+        while (length > 0) {
+            if (pending.length() == maxLength) {
+                sendFullMessage();
+            }
+            int part = Math.min(length, maxLength - pending.length());
+            pending.append(text, offset, offset + part);
+            offset += part;
+            length -= part;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if(closed) throw new IOException("Writer was closed");
+        if (pending.length() > 0) {
+            send(pending.toString());
+            pending.setLength(0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            flush();
+            closed = true;
+        }
+    }
+
+    //only called when more text follows, so a message never ends with a line that could still be completed
+    private void sendFullMessage() throws IOException {
+        String separator = System.lineSeparator();
+        int lineEnd = pending.lastIndexOf(separator);
+        if (lineEnd >= 0) {
+            if (lineEnd > 0) {
+                send(pending.substring(0, lineEnd));
+            }
+            pending.delete(0, lineEnd + separator.length());
+            return;
+        }
+        //surrogate pairs are not split
+        int end = Character.isHighSurrogate(pending.charAt(maxLength - 1)) && maxLength > 1 ? maxLength - 1 : maxLength;
+        send(pending.substring(0, end));
+        pending.delete(0, end);
+    }
+
+    private void send(String message) throws IOException {
+        String error = sender.send(message).orElse(null);
+        if (error != null) {
+            throw new IOException(error);
+        }
+        sentMessages++;
+    }
+}
@@ -1,18 +1,125 @@
 package de.uniwue.jpp.mensabot.sending;
 
 import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
 import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.retrieval.BinaryLog;
 import de.uniwue.jpp.mensabot.retrieval.Parser;
+import de.uniwue.jpp.mensabot.retrieval.SegmentedLog;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface Importer {
 
     OptionalWithMessage<Menu> getLatest(BufferedReader fileReader);
     OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader);
 
+    //path based variants, the default implementation opens the file as UTF-8 and uses the reader based methods
+    default OptionalWithMessage<Menu> getLatest(Path logfile) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(logfile), StandardCharsets.UTF_8))) {
+            return getLatest(reader);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    default OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(logfile), StandardCharsets.UTF_8))) {
+            return getAll(reader);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //imports all menus into a MenuStore for the analyzers, menus are newest first like getAll
+    default OptionalWithMessage<MenuStore> getStore(Path logfile) {
+        return getAll(logfile).map(MenuStore::createMenuStore);
+    }
+
+    //returns all menus with a date between from and to (both inclusive), newest first like getAll
+    //the default implementation imports the whole file and filters it
+    default OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+        if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+        return getAll(logfile).map(menus -> menus
+                .stream()
+                .filter(menu -> !menu.getDate().isBefore(from) && !menu.getDate().isAfter(to))
+                .toList());
+    }
+
+    default OptionalWithMessage<Menu> getByDate(Path logfile, LocalDate date) {
+        return getRange(logfile, date, date).flatMap(menus -> OptionalWithMessage.ofOptional(menus.stream().findFirst(), "No menu found for " + date));
+    }
+
+    //returns the menus in the same order as getAll, import errors are passed to the errors consumer, e.g. a List::add
+    //the default implementation is neither lazy nor skips single entries: it imports everything with getAll before the stream
+    //is returned and, if that fails, passes its message to the consumer and returns an empty stream
+    //the csv based importers override it, parse one entry after the other while the stream is consumed and skip the entries
+    //that can not be parsed, passing one message for each of them
+    default Stream<Menu> stream(BufferedReader fileReader, Consumer<String> errors) {
+        OptionalWithMessage<List<Menu>> menus = getAll(fileReader);
+        menus.consume(s -> {}).ifPresent(errors);
+        return menus.orElse(List.of()).stream();
+    }
+
+    //the stream has to be closed to release the file, e.g. with try-with-resources
+    default Stream<Menu> stream(Path logfile, Consumer<String> errors) {
+        OptionalWithMessage<List<Menu>> menus = getAll(logfile);
+        menus.consume(s -> {}).ifPresent(errors);
+        return menus.orElse(List.of()).stream();
+    }
+
+    //parses one line after the other with a single parser, lines are only read when the stream asks for the next menu
+    static private Stream<Menu> parseLazily(BufferedReader fileReader, Consumer<String> errors) {
+        Parser parser = Parser.createCsvParser();
+        return fileReader
+                .lines()
+                .map(parser::parse)
+                .filter(menu -> menu.consume(s -> {}).map(message -> {
+                    errors.accept(message);
+                    return false;
+                }).orElse(true))
+                .map(OptionalWithMessage::get);
+    }
+
+    static private Stream<Menu> parseLazily(Path logfile, Consumer<String> errors) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(logfile), StandardCharsets.UTF_8));
+            return parseLazily(reader, errors).onClose(() -> {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    errors.accept("Import failure - File could not be closed");
+                }
+            });
+        } catch (NoSuchFileException e) {
+            errors.accept("File not found!");
+        } catch (IOException e) {
+            errors.accept("Import failure - File could not be read");
+        }
+        return Stream.empty();
+    }
+
     static Importer createCsvImporter() {
         return new Importer() {
             @Override
@@ -26,7 +133,324 @@ public interface Importer {
 
             @Override
             public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
-                    return OptionalWithMessage.sequence(fileReader.lines().map(s -> Parser.createCsvParser().parse(s)).toList());
+                    Parser parser = Parser.createCsvParser();
+                    return OptionalWithMessage.sequence(fileReader.lines().map(parser::parse).toList());
+            }
+
+            @Override
+            public Stream<Menu> stream(BufferedReader fileReader, Consumer<String> errors) {
+                return Importer.parseLazily(fileReader, errors);
+            }
+
+            @Override
+            public Stream<Menu> stream(Path logfile, Consumer<String> errors) {
+                return Importer.parseLazily(logfile, errors);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+                if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+                return MappedCsvLog.parseRange(logfile, Parser.createCsvParser(), from, to, true);
+            }
+        };
+    }
+
+    //creates an importer for logs written by Saver.createAppendingCsvSaver(), which are stored oldest first
+    //getLatest returns the last line of the file and getAll returns the menus newest first, just like the csv importer
+    //stream by path reads the file from the back and is newest first as well, a reader can only be read forward, so
+    //stream by reader returns the menus in file order (oldest first)
+    static Importer createAppendingCsvImporter() {
+        return new Importer() {
+            @Override
+            public OptionalWithMessage<Menu> getLatest(BufferedReader fileReader) {
+                try {
+                    String lastLine = null;
+                    String line;
+                    while ((line = fileReader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            lastLine = line;
+                        }
+                    }
+                    if (lastLine == null) {
+                        return OptionalWithMessage.ofMsg("Import failure - File is empty");
+                    }
+                    return Parser.createCsvParser().parse(lastLine);
+                } catch (IOException e) {
+                    return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+                }
+            }
+
+            @Override
+            public OptionalWithMessage<Menu> getLatest(Path logfile) {
+                return MappedCsvLog.parseLast(logfile, Parser.createCsvParser());
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
+                Parser parser = Parser.createCsvParser();
+                return OptionalWithMessage.sequence(fileReader.lines().map(parser::parse).toList()).map(menus -> {
+                    List<Menu> newestFirst = new ArrayList<>(menus);
+                    Collections.reverse(newestFirst);
+                    return newestFirst;
+                });
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+                return MappedCsvLog.parseAll(logfile, Parser.createCsvParser()).map(menus -> {
+                    Collections.reverse(menus);
+                    return menus;
+                });
+            }
+
+            @Override
+            public Stream<Menu> stream(BufferedReader fileReader, Consumer<String> errors) {
+                return Importer.parseLazily(fileReader, errors);
+            }
+
+            @Override
+            public Stream<Menu> stream(Path logfile, Consumer<String> errors) {
+                return MappedCsvLog.streamBackwards(logfile, Parser.createCsvParser(), errors);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+                if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+                return MappedCsvLog.parseRange(logfile, Parser.createCsvParser(), from, to, false).map(menus -> {
+                    Collections.reverse(menus);
+                    return menus;
+                });
+            }
+        };
+    }
+
+    //creates an importer for the csv log that memory maps the file when it is imported by path
+    //line breaks are searched on the raw bytes and only the meal names are decoded, one parser is used for the whole file
+    static Importer createMappedCsvImporter() {
+        return new Importer() {
+            @Override
+            public OptionalWithMessage<Menu> getLatest(BufferedReader fileReader) {
+                return Importer.createCsvImporter().getLatest(fileReader);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
+                Parser parser = Parser.createCsvParser();
+                return OptionalWithMessage.sequence(fileReader.lines().map(parser::parse).toList());
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+                return MappedCsvLog.parseAll(logfile, Parser.createCsvParser());
+            }
+
+            @Override
+            public Stream<Menu> stream(BufferedReader fileReader, Consumer<String> errors) {
+                return Importer.parseLazily(fileReader, errors);
+            }
+
+            @Override
+            public Stream<Menu> stream(Path logfile, Consumer<String> errors) {
+                return Importer.parseLazily(logfile, errors);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+                if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+                return MappedCsvLog.parseRange(logfile, Parser.createCsvParser(), from, to, true);
+            }
+        };
+    }
+
+    //creates an importer for the csv log that parses the mapped file in chunks on the common fork/join pool
+    static Importer createParallelCsvImporter() {
+        return createParallelCsvImporter(ForkJoinPool.commonPool());
+    }
+
+    //same as above on the given pool, the menus and error messages are returned in file order just like getAll of the csv importer
+    static Importer createParallelCsvImporter(ForkJoinPool pool) {
+        if(pool == null) throw new NullPointerException("No pool given");
+        return new Importer() {
+            private final Importer mappedImporter = Importer.createMappedCsvImporter();
+
+            @Override
+            public OptionalWithMessage<Menu> getLatest(BufferedReader fileReader) {
+                return mappedImporter.getLatest(fileReader);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
+                return mappedImporter.getAll(fileReader);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+                return MappedCsvLog.parseAllParallel(logfile, Parser.createCsvParser(), pool);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+                return mappedImporter.getRange(logfile, from, to);
+            }
+
+            @Override
+            public Stream<Menu> stream(BufferedReader fileReader, Consumer<String> errors) {
+                return mappedImporter.stream(fileReader, errors);
+            }
+
+            @Override
+            public Stream<Menu> stream(Path logfile, Consumer<String> errors) {
+                return mappedImporter.stream(logfile, errors);
+            }
+        };
+    }
+
+    //creates an importer for logs written by Saver.createBinarySaver(), getAll returns the menus newest first
+    //binary logs can only be imported by path
+    static Importer createBinaryImporter() {
+        return new Importer() {
+            @Override
+            public OptionalWithMessage<Menu> getLatest(BufferedReader fileReader) {
+                return OptionalWithMessage.ofMsg("Binary logs can only be imported by path");
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
+                return OptionalWithMessage.ofMsg("Binary logs can only be imported by path");
+            }
+
+            @Override
+            public OptionalWithMessage<Menu> getLatest(Path logfile) {
+                return BinaryLog.readLatest(logfile);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+                return BinaryLog.readAll(logfile).map(menus -> {
+                    Collections.reverse(menus);
+                    return menus;
+                });
+            }
+        };
+    }
+
+    //creates an importer for logs written by Saver.createSegmentedCsvSaver(), the path is the directory of the segments
+    //only the segments that overlap the requested dates are read, all segments but the last one never change again
+    //and the 12 sealed segments used last are cached by the importer after they were read
+    static Importer createSegmentedCsvImporter() {
+        return createSegmentedCsvImporter(12);
+    }
+
+    //same as above, caches at most the given number of sealed segments, the segments used least recently are removed first
+    //a cached segment is only used as long as the size and modification time of its file did not change
+    //the importer can be used by several threads at once
+    static Importer createSegmentedCsvImporter(int cachedSegments) {
+        if (cachedSegments <= 0) throw new IllegalArgumentException("The number of cached segments must be positive");
+
+        final class CachedSegment {
+            private final long size;
+            private final FileTime lastModified;
+            private final List<Menu> menus;
+
+            CachedSegment(long size, FileTime lastModified, List<Menu> menus) {
+                this.size = size;
+                this.lastModified = lastModified;
+                this.menus = menus;
+            }
+
+            boolean matches(BasicFileAttributes attributes) {
+                return attributes.size() == size && attributes.lastModifiedTime().equals(lastModified);
+            }
+        }
+
+        return new Importer() {
+            private final Importer segmentImporter = Importer.createAppendingCsvImporter();
+            private final Map<Path, CachedSegment> sealedSegments = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, CachedSegment> eldest) {
+                    return size() > cachedSegments;
+                }
+            };
+
+            @Override
+            public OptionalWithMessage<Menu> getLatest(BufferedReader fileReader) {
+                return OptionalWithMessage.ofMsg("Segmented logs can only be imported by path");
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(BufferedReader fileReader) {
+                return OptionalWithMessage.ofMsg("Segmented logs can only be imported by path");
+            }
+
+            @Override
+            public OptionalWithMessage<Menu> getLatest(Path logfile) {
+                return SegmentedLog.readManifest(logfile).flatMap(segments -> segments.isEmpty()
+                        ? OptionalWithMessage.ofMsg("Import failure - Log is empty")
+                        : segmentImporter.getLatest(logfile.resolve(segments.get(segments.size() - 1).getFileName())));
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getAll(Path logfile) {
+                return getRange(logfile, LocalDate.MIN, LocalDate.MAX);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Menu>> getRange(Path logfile, LocalDate from, LocalDate to) {
+                if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+                OptionalWithMessage<List<SegmentedLog.Segment>> segments = SegmentedLog.readManifest(logfile);
+                if (segments.isEmpty()) {
+                    return OptionalWithMessage.ofMsg(segments.getMessage());
+                }
+
+                List<OptionalWithMessage<List<Menu>>> parts = new ArrayList<>();
+                for (int i = segments.get().size() - 1; i >= 0; i--) {
+                    SegmentedLog.Segment segment = segments.get().get(i);
+                    Path segmentPath = logfile.resolve(segment.getFileName());
+                    boolean sealed = i < segments.get().size() - 1;
+
+                    //the manifest is written after the last segment, so its end date is not trusted
+                    if (segment.getFirstDate().isAfter(to) || (sealed && segment.getLastDate().isBefore(from))) {
+                        continue;
+                    }
+                    if (!sealed) {
+                        parts.add(segmentImporter.getRange(segmentPath, from, to));
+                    } else if (!from.isAfter(segment.getFirstDate()) && !to.isBefore(segment.getLastDate())) {
+                        parts.add(getSealedSegment(segmentPath));
+                    } else {
+                        parts.add(getSealedSegment(segmentPath).map(menus -> menus
+                                .stream()
+                                .filter(menu -> !menu.getDate().isBefore(from) && !menu.getDate().isAfter(to))
+                                .toList()));
+                    }
+                }
+                return OptionalWithMessage.sequence(parts).map(lists -> {
+                    List<Menu> menus = new ArrayList<>();
+                    lists.forEach(menus::addAll);
+                    return menus;
+                });
+            }
+
+            //the segment is read outside of the lock, two threads missing the same segment may both read it
+            private OptionalWithMessage<List<Menu>> getSealedSegment(Path segmentPath) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(segmentPath, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    return segmentImporter.getAll(segmentPath);
+                }
+                synchronized (sealedSegments) {
+                    CachedSegment cached = sealedSegments.get(segmentPath);
+                    if (cached != null && cached.matches(attributes)) {
+                        return OptionalWithMessage.of(cached.menus);
+                    }
+                }
+                OptionalWithMessage<List<Menu>> menus = segmentImporter.getAll(segmentPath).map(Collections::unmodifiableList);
+                menus.consume(list -> {
+                    synchronized (sealedSegments) {
+                        sealedSegments.put(segmentPath, new CachedSegment(attributes.size(), attributes.lastModifiedTime(), list));
+                    }
+                });
+                return menus;
             }
         };
     }
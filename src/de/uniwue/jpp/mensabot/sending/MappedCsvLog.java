@@ -0,0 +1,392 @@
+package de.uniwue.jpp.mensabot.sending;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.retrieval.Parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//reads csv logfiles through memory mapped windows, line boundaries are searched directly on the bytes of the file
+//files larger than a single window are mapped piece by piece, every window ends at a line break
+class MappedCsvLog {
+    static final int MAX_WINDOW_SIZE = 1 << 30;
+    static final int STREAM_SEGMENT_SIZE = 1 << 20;
+
+    interface LineConsumer {
+        void accept(MappedByteBuffer buffer, int from, int to);
+    }
+
+    private MappedCsvLog() {}
+
+    //parses every line of the logfile in file order
+    static OptionalWithMessage<List<Menu>> parseAll(Path logfile, Parser parser) {
+        List<OptionalWithMessage<Menu>> menus = new ArrayList<>();
+        return forEachLine(logfile, (buffer, from, to) -> menus.add(parser.parse(buffer, from, to)))
+                .flatMap(ignored -> OptionalWithMessage.sequence(menus));
+    }
+
+    //parses the last line of the logfile
+    static OptionalWithMessage<Menu> parseLast(Path logfile, Parser parser) {
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = Math.max(0, size - MAX_WINDOW_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size - windowStart);
+
+            int end = buffer.limit();
+            while (end > 0 && (buffer.get(end - 1) == '\n' || buffer.get(end - 1) == '\r')) {
+                end--;
+            }
+            if (end == 0) {
+                return OptionalWithMessage.ofMsg("Import failure - File is empty");
+            }
+            int start = end;
+            while (start > 0 && buffer.get(start - 1) != '\n') {
+                start--;
+            }
+            return parser.parse(buffer, start, end);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //parses the logfile lazily from the back, so a log written oldest first is streamed newest first
+    //the file is read in segments that end at line breaks, the lines of a segment are parsed in file order and returned in reverse
+    //lines that can not be parsed are skipped and their message is passed to the errors consumer, the stream closes the file
+    static Stream<Menu> streamBackwards(Path logfile, Parser parser, Consumer<String> errors) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(logfile, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            errors.accept("File not found!");
+            return Stream.empty();
+        } catch (IOException e) {
+            errors.accept("Import failure - File could not be read");
+            return Stream.empty();
+        }
+
+        Spliterator<Menu> segments = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final Deque<Menu> segment = new ArrayDeque<>();
+            private long end = -1;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Menu> action) {
+                try {
+                    if (end < 0) {
+                        end = channel.size();
+                    }
+                    while (segment.isEmpty() && end > 0) {
+                        long start = lineStartAtOrBefore(channel, Math.max(0, end - STREAM_SEGMENT_SIZE));
+                        OptionalWithMessage<Long> read = forEachLine(channel, start, end, (buffer, from, to) ->
+                                parser.parse(buffer, from, to).consume(segment::addFirst).ifPresent(errors));
+                        if (read.isEmpty()) {
+                            errors.accept(read.getMessage());
+                            end = 0;
+                            segment.clear();
+                        } else {
+                            end = start;
+                        }
+                    }
+                } catch (IOException e) {
+                    errors.accept("Import failure - File could not be read");
+                    end = 0;
+                    segment.clear();
+                }
+                if (segment.isEmpty()) {
+                    return false;
+                }
+                action.accept(segment.removeFirst());
+                return true;
+            }
+        };
+        return StreamSupport.stream(segments, false).onClose(() -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                errors.accept("Import failure - File could not be closed");
+            }
+        });
+    }
+
+    //parses only the lines with a date between from and to (both inclusive), the result is in file order
+    //the first and last line of the range are found by bisecting the file, positions in between are resynced to the next line start
+    //newestFirst tells whether the file is sorted descending (csv log) or ascending (appending csv log) by date
+    static OptionalWithMessage<List<Menu>> parseRange(Path logfile, Parser parser, LocalDate from, LocalDate to, boolean newestFirst) {
+        if (from.isAfter(to)) {
+            return OptionalWithMessage.of(new ArrayList<>());
+        }
+        int fromKey = toDateKey(from);
+        int toKey = toDateKey(to);
+
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long rangeStart;
+            long rangeEnd;
+            if (newestFirst) {
+                rangeStart = bisect(channel, size, key -> key <= toKey);
+                rangeEnd = bisect(channel, size, key -> key < fromKey);
+            } else {
+                rangeStart = bisect(channel, size, key -> key >= fromKey);
+                rangeEnd = bisect(channel, size, key -> key > toKey);
+            }
+
+            //a line without a readable date can not be bisected, parse everything to report the errors like getAll
+            if (rangeStart < 0 || rangeEnd < 0) {
+                return parseAll(logfile, parser).map(menus -> new ArrayList<>(menus
+                        .stream()
+                        .filter(menu -> !menu.getDate().isBefore(from) && !menu.getDate().isAfter(to))
+                        .toList()));
+            }
+
+            List<OptionalWithMessage<Menu>> menus = new ArrayList<>();
+            return forEachLine(channel, rangeStart, rangeEnd, (buffer, lineFrom, lineTo) -> menus.add(parser.parse(buffer, lineFrom, lineTo)))
+                    .flatMap(ignored -> OptionalWithMessage.sequence(menus));
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //returns the start of the first line whose date key fulfills the predicate, or the file size if there is none
+    //the predicate has to be false for a prefix of the file and true for the rest, returns -1 if a line has no readable date
+    private static long bisect(FileChannel channel, long size, IntPredicate predicate) throws IOException {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long lineStart = lineStartAtOrBefore(channel, low + (high - low) / 2);
+            int key = readDateKey(channel, lineStart, size);
+            if (key < 0) {
+                return -1;
+            }
+            if (predicate.test(key)) {
+                high = lineStart;
+            } else {
+                low = nextLineStart(channel, lineStart, size);
+            }
+        }
+        return high;
+    }
+
+    private static long lineStartAtOrBefore(FileChannel channel, long position) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(256);
+        while (position > 0) {
+            long blockStart = Math.max(0, position - block.capacity());
+            block.clear().limit((int) (position - blockStart));
+            readFully(channel, block, blockStart);
+            for (int i = block.limit() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            position = blockStart;
+        }
+        return 0;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(256);
+        while (position < size) {
+            block.clear().limit((int) Math.min(block.capacity(), size - position));
+            readFully(channel, block, position);
+            for (int i = 0; i < block.limit(); i++) {
+                if (block.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += block.limit();
+        }
+        return size;
+    }
+
+    //reads the date at the start of a line as yyyymmdd, returns -1 if there is no date
+    private static int readDateKey(FileChannel channel, long lineStart, long size) throws IOException {
+        if (size - lineStart < 10) {
+            return -1;
+        }
+        ByteBuffer date = ByteBuffer.allocate(10);
+        readFully(channel, date, lineStart);
+        int key = 0;
+        for (int i = 0; i < 10; i++) {
+            byte b = date.get(i);
+            if (i == 4 || i == 7) {
+                if (b != '-') {
+                    return -1;
+                }
+            } else if (b < '0' || b > '9') {
+                return -1;
+            } else {
+                key = key * 10 + (b - '0');
+            }
+        }
+        return key;
+    }
+
+    //dates outside of the four digit years of the csv format are mapped in front of or behind all keys
+    private static int toDateKey(LocalDate date) {
+        if (date.getYear() < 0) {
+            return -1;
+        }
+        if (date.getYear() > 9999) {
+            return Integer.MAX_VALUE;
+        }
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    //calls the consumer for every line of the file, line breaks ("\n" or "\r\n") are not part of the passed range
+    //a line break at the very end of the file does not start another line, just like BufferedReader.lines()
+    static OptionalWithMessage<Path> forEachLine(Path logfile, LineConsumer consumer) {
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            return forEachLine(channel, 0, channel.size(), consumer).map(ignored -> logfile);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    //same as above for the lines between the positions start and end, start has to be the beginning of a line
+    static OptionalWithMessage<Long> forEachLine(FileChannel channel, long start, long end, LineConsumer consumer) throws IOException {
+        long windowStart = start;
+
+        while (windowStart < end) {
+            long windowSize = Math.min(MAX_WINDOW_SIZE, end - windowStart);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            boolean lastWindow = windowStart + windowSize == end;
+
+            int limit = buffer.limit();
+            int lineStart = scanLines(buffer, 0, limit, consumer);
+            if (lastWindow) {
+                if (lineStart < limit) {
+                    consumer.accept(buffer, lineStart, stripCarriageReturn(buffer, lineStart, limit));
+                }
+                break;
+            }
+            if (lineStart == 0) {
+                return OptionalWithMessage.ofMsg("Import failure - Line is too long to be mapped");
+            }
+            windowStart += lineStart;
+        }
+        return OptionalWithMessage.of(end);
+    }
+
+    //parses every line of the logfile in file order on the given pool, the parser is shared by all threads
+    //it keeps no state of its own, and the default MealPool.SHARED finds meals that are already pooled without locking
+    //each mapped window is split into chunks that end at line breaks, the results are joined in file order again
+    static OptionalWithMessage<List<Menu>> parseAllParallel(Path logfile, Parser parser, ForkJoinPool pool) {
+        try (FileChannel channel = FileChannel.open(logfile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            List<OptionalWithMessage<Menu>> menus = new ArrayList<>();
+
+            while (windowStart < size) {
+                long windowSize = Math.min(MAX_WINDOW_SIZE, size - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                int end = buffer.limit();
+                if (windowStart + windowSize < size) {
+                    while (end > 0 && buffer.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        return OptionalWithMessage.ofMsg("Import failure - Line is too long to be mapped");
+                    }
+                }
+                menus.addAll(pool.invoke(new ParseTask(buffer, 0, end, parser)));
+                windowStart += end;
+            }
+            return OptionalWithMessage.sequence(menus);
+        } catch (NoSuchFileException e) {
+            return OptionalWithMessage.ofMsg("File not found!");
+        } catch (IOException e) {
+            return OptionalWithMessage.ofMsg("Import failure - File could not be read");
+        }
+    }
+
+    @SuppressWarnings("serial") //tasks are never serialized
+    private static class ParseTask extends RecursiveTask<List<OptionalWithMessage<Menu>>> {
+        static final int CHUNK_SIZE = 1 << 20;
+
+        private final MappedByteBuffer buffer;
+        private final int from;
+        private final int to;
+        private final Parser parser;
+
+        ParseTask(MappedByteBuffer buffer, int from, int to, Parser parser) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+        }
+
+        @Override
+        protected List<OptionalWithMessage<Menu>> compute() {
+            if (to - from > CHUNK_SIZE) {
+                //split behind the first line break after the middle
+                int middle = from + (to - from) / 2;
+                while (middle < to && buffer.get(middle - 1) != '\n') {
+                    middle++;
+                }
+                if (middle < to) {
+                    ParseTask left = new ParseTask(buffer, from, middle, parser);
+                    left.fork();
+                    List<OptionalWithMessage<Menu>> right = new ParseTask(buffer, middle, to, parser).compute();
+                    List<OptionalWithMessage<Menu>> menus = left.join();
+                    menus.addAll(right);
+                    return menus;
+                }
+            }
+
+            List<OptionalWithMessage<Menu>> menus = new ArrayList<>();
+            LineConsumer consumer = (lineBuffer, lineFrom, lineTo) -> menus.add(parser.parse(lineBuffer, lineFrom, lineTo));
+            int rest = scanLines(buffer, from, to, consumer);
+            if (rest < to) {
+                consumer.accept(buffer, rest, stripCarriageReturn(buffer, rest, to));
+            }
+            return menus;
+        }
+    }
+
+    //calls the consumer for every line between from and to that ends with a line break, returns the start of the rest
+    private static int scanLines(MappedByteBuffer buffer, int from, int to, LineConsumer consumer) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                consumer.accept(buffer, lineStart, stripCarriageReturn(buffer, lineStart, i));
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    private static int stripCarriageReturn(MappedByteBuffer buffer, int from, int to) {
+        return to > from && buffer.get(to - 1) == '\r' ? to - 1 : to;
+    }
+}
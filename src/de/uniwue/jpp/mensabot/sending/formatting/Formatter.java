@@ -3,8 +3,10 @@ package de.uniwue.jpp.mensabot.sending.formatting;
 import de.uniwue.jpp.mensabot.dataclasses.Meal;
 import de.uniwue.jpp.mensabot.dataclasses.Menu;
 import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.AnalysisPlan;
 import de.uniwue.jpp.mensabot.sending.formatting.analyze.Analyzer;
 
+import java.io.IOException;
 import java.text.Format;
 import java.util.*;
 import java.util.function.Supplier;
@@ -33,6 +35,26 @@ The following formatters format all menus:
 
 public interface Formatter {
     OptionalWithMessage<String> format(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus);
+
+    //appends the formatted text to output instead of returning it, returns a message if formatting or writing failed
+    default Optional<String> formatTo(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus, Appendable output) {
+        if(output == null) throw new NullPointerException("No output given");
+        return format(latestMenu, allMenus).tryToConsume(text -> Formatter.append(output, text));
+    }
+
+    //true if the formatter goes through all menus once in order, so formatStreamTo never holds the whole history
+    default boolean canFormatStream() {
+        return false;
+    }
+
+    //like formatTo with the menus taken from a stream that is consumed at most once, e.g. Importer.stream
+    //the default collects the stream into a list first, formatters for which canFormatStream is true override it
+    default Optional<String> formatStreamTo(Menu latestMenu, Stream<Menu> allMenus, Appendable output) {
+        if(allMenus == null) throw new NullPointerException("No menus given");
+        List<Menu> menus = allMenus.collect(Collectors.toCollection(ArrayList::new));
+        return formatTo(latestMenu, () -> OptionalWithMessage.of(menus), output);
+    }
+
     static Formatter createSimpleFormatter()  {
         return new Formatter() {
             @Override
@@ -51,6 +73,54 @@ public interface Formatter {
         };
     }
 
+    //runs all analyzers of the plan in one pass, failed analyses are replaced by "Analyzing is not possible"
+    static private List<String> analyzeAll(AnalysisPlan plan, OptionalWithMessage<List<Menu>> allMenuList){
+        return Formatter.executeAll(plan, allMenuList)
+                .stream()
+                .map(Formatter::resultToString)
+                .toList();
+    }
+
+    static private List<OptionalWithMessage<?>> executeAll(AnalysisPlan plan, OptionalWithMessage<List<Menu>> allMenuList){
+        return allMenuList
+                .map(plan::execute)
+                .orElse(Collections.nCopies(plan.getAnalyzers().size(), OptionalWithMessage.ofMsg("No menus")));
+    }
+
+    static private String resultToString(OptionalWithMessage<?> result){
+        return result.isPresent() ? result.get().toString() : "Analyzing is not possible";
+    }
+
+    //writes all meals like SimpleTotalFormatter while the menus are consumed, so with a lazy stream like Importer.stream
+    //and an output that does not collect the text, e.g. a ChunkedMessageWriter, whole histories are exported in constant memory
+    static Optional<String> formatAllMealsTo(Stream<Menu> menus, Appendable output){
+        if(menus == null || output == null) throw new NullPointerException("At least one of the arguments was null");
+        String separator = System.lineSeparator();
+        boolean first = true;
+        for(Iterator<Menu> iterator = menus.iterator(); iterator.hasNext();){
+            for(Meal meal : iterator.next().getMeals()){
+                Optional<String> error = first ? Optional.empty() : Formatter.append(output, separator);
+                if(error.isEmpty()){
+                    error = Formatter.append(output, meal.toString());
+                }
+                if(error.isPresent()){
+                    return error;
+                }
+                first = false;
+            }
+        }
+        return Optional.empty();
+    }
+
+    static private Optional<String> append(Appendable output, CharSequence text){
+        try{
+            output.append(text);
+            return Optional.empty();
+        } catch (IOException e){
+            return Optional.of("Could not write the formatted text: " + e.getMessage());
+        }
+    }
+
     static public String centToEuro(int centValue){
         if(centValue%100 < 10){
             return centValue/100 + ",0" + centValue%100  + "\u20ac";
@@ -157,18 +227,16 @@ public interface Formatter {
         if(headlines == null || headlines.isEmpty()|| analyzers == null || analyzers.isEmpty()) throw new IllegalArgumentException("Illegal argument!");
         if(headlines.size() != analyzers.size()) throw new IllegalArgumentException("There must be a headline for each analyzer!");
 
+        AnalysisPlan plan = AnalysisPlan.createAnalysisPlan(analyzers);
         return new Formatter() {
             @Override
             public OptionalWithMessage<String> format(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus) {
                 if(latestMenu == null || allMenus == null) throw  new NullPointerException("At least one of the arguments was null");
-                OptionalWithMessage<List<Menu>> allMenuList = allMenus.get();
+                List<String> results = Formatter.analyzeAll(plan, allMenus.get());
 
                 StringBuilder output = new StringBuilder();
                 for(int i = 0; i < headlines.size(); i++){
-                    output.append(headlines.get(i)).append(":").append(allMenuList
-                            .flatMap(analyzers.get(i)::analyze)
-                            .map(Object::toString)
-                            .orElse("Analyzing is not possible"))
+                    output.append(headlines.get(i)).append(":").append(results.get(i))
                             .append(System.lineSeparator());
                 }
                 return OptionalWithMessage.of(output.toString());
@@ -189,27 +257,38 @@ public interface Formatter {
         if(analyzers == null || analyzers.isEmpty()) throw new IllegalArgumentException("Illegal analyzer argument!");
         if(analyzers.size() != format.chars().filter(c -> c == '$').count()) throw new IllegalArgumentException("There must be a $ for each analyzer");
 
+        AnalysisPlan plan = AnalysisPlan.createAnalysisPlan(analyzers);
+        //the format is split only once, segment i comes before the result of analyzer i and the last one ends the text
+        String[] segments = format.split("[$]", -1);
         return new Formatter() {
+            //the formatter keeps no state between calls, every text is rendered into a buffer of its own
             @Override
             public OptionalWithMessage<String> format(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus) {
-                if(latestMenu == null || allMenus == null) throw  new NullPointerException("At least one of the arguments was null");
-
-                List<String> formatParts = Arrays.stream(format.split("[$]")).collect(Collectors.toList());
-                while(formatParts.size() < analyzers.size()){
-                    formatParts.add("");
-                }
-                StringBuilder output = new StringBuilder();
-                OptionalWithMessage<List<Menu>> allMenuList = allMenus.get();
+                StringBuilder output = new StringBuilder(format.length());
+                formatTo(latestMenu, allMenus, output);
+                return OptionalWithMessage.of(output.toString());
+            }
 
-                for(int i = 0; i < analyzers.size(); i++){
-                    output.append(formatParts.get(i));
-                    output.append(allMenuList.flatMap(analyzers.get(i)::analyze).map(Object::toString).orElse("Analyzing is not possible"));
-                }
-                if(formatParts.size() > analyzers.size()){
-                    output.append(formatParts.get(formatParts.size()-1));
+            //the menus are analyzed when the first slot is reached and each result is converted when it is appended
+            @Override
+            public Optional<String> formatTo(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus, Appendable output) {
+                if(latestMenu == null || allMenus == null) throw  new NullPointerException("At least one of the arguments was null");
+                if(output == null) throw new NullPointerException("No output given");
+
+                List<OptionalWithMessage<?>> results = null;
+                for(int i = 0; i < segments.length; i++){
+                    Optional<String> error = Formatter.append(output, segments[i]);
+                    if(error.isEmpty() && i < analyzers.size()){
+                        if(results == null){
+                            results = Formatter.executeAll(plan, allMenus.get());
+                        }
+                        error = Formatter.append(output, Formatter.resultToString(results.get(i)));
+                    }
+                    if(error.isPresent()){
+                        return error;
+                    }
                 }
-
-                return OptionalWithMessage.of(output.toString());
+                return Optional.empty();
             }
 
             @Override
@@ -325,6 +404,25 @@ public interface Formatter {
 
             }
 
+            //writes one meal after the other instead of joining them first
+            @Override
+            public Optional<String> formatTo(Menu latestMenu, Supplier<OptionalWithMessage<List<Menu>>> allMenus, Appendable output) {
+                if(latestMenu == null || allMenus == null) throw  new NullPointerException("At least one of the arguments was null");
+                if(output == null) throw new NullPointerException("No output given");
+                return allMenus.get().tryToConsume(menus -> Formatter.formatAllMealsTo(menus.stream(), output));
+            }
+
+            @Override
+            public boolean canFormatStream() {
+                return true;
+            }
+
+            @Override
+            public Optional<String> formatStreamTo(Menu latestMenu, Stream<Menu> allMenus, Appendable output) {
+                if(latestMenu == null || allMenus == null) throw  new NullPointerException("At least one of the arguments was null");
+                return Formatter.formatAllMealsTo(allMenus, output);
+            }
+
             public String toString() {
                 return "SimpleTotalFormatter";
             }
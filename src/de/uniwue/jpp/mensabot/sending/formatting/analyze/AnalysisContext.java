@@ -0,0 +1,112 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+//a list of menus together with the intermediates the analyzers compute from it, see Analyzer.analyze(AnalysisContext)
+//every intermediate is computed on first use and then shared, so running several analyzers on one context computes each
+//of them at most once; the menus must not change while the context is used and the context is not thread safe
+public final class AnalysisContext {
+    private final List<Menu> data;
+    private List<Meal> meals;
+    private PriceStatistics statistics;
+    private PriceHistogram histogram;
+    private Map<Meal, Integer> occurrences;
+    private MenuStore store;
+    private DateRangeIndex dateRangeIndex;
+
+    private AnalysisContext(List<Menu> data) {
+        this.data = data;
+    }
+
+    static public AnalysisContext createAnalysisContext(List<Menu> data) {
+        if(data == null) throw new IllegalArgumentException("Es muss eine Liste an Menüs übergeben werden");
+        return new AnalysisContext(data);
+    }
+
+    public List<Menu> getData() {
+        return data;
+    }
+
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    //the meals of all menus in the order of the menus
+    public List<Meal> getMeals() {
+        if (meals == null) {
+            List<Meal> result = new ArrayList<>();
+            for (Menu menu : data) {
+                result.addAll(menu.getMeals());
+            }
+            meals = Collections.unmodifiableList(result);
+        }
+        return meals;
+    }
+
+    public int getNumberOfMeals() {
+        return getStatistics(EnumSet.of(PriceStatistics.Statistic.COUNT)).getCount();
+    }
+
+    //contains at least the requested statistics, missing ones are computed together with the ones computed before and all
+    //scalar statistics, so that only the histogram can cause a second pass over the menus
+    public PriceStatistics getStatistics(Set<PriceStatistics.Statistic> requested) {
+        return getStatistics(requested, null);
+    }
+
+    //without a pool the statistics are computed sequentially
+    PriceStatistics getStatistics(Set<PriceStatistics.Statistic> requested, ForkJoinPool pool) {
+        if (statistics != null && requested.stream().allMatch(statistics::contains)) {
+            return statistics;
+        }
+        Set<PriceStatistics.Statistic> needed = EnumSet.complementOf(EnumSet.of(PriceStatistics.Statistic.HISTOGRAM));
+        needed.addAll(requested);
+        if (statistics != null) {
+            Arrays.stream(PriceStatistics.Statistic.values()).filter(statistics::contains).forEach(needed::add);
+        }
+        statistics = pool == null ? PriceStatistics.compute(data, needed) : PriceStatistics.computeParallel(data, needed, pool);
+        return statistics;
+    }
+
+    //shared by all analyzers of the context, so it must not be changed
+    public PriceHistogram getHistogram() {
+        if (histogram == null) {
+            histogram = statistics != null && statistics.contains(PriceStatistics.Statistic.HISTOGRAM)
+                    ? statistics.getHistogram()
+                    : PriceHistogram.createPriceHistogram(data);
+        }
+        return histogram;
+    }
+
+    //number of occurrences of every meal, iterated in the order the meals occur first
+    public Map<Meal, Integer> getOccurrences() {
+        if (occurrences == null) {
+            LinkedHashMap<Meal, Integer> result = new LinkedHashMap<>();
+            for (Menu menu : data) {
+                for (Meal meal : menu.getMeals()) {
+                    result.merge(meal, 1, Integer::sum);
+                }
+            }
+            occurrences = Collections.unmodifiableMap(result);
+        }
+        return occurrences;
+    }
+
+    public MenuStore getStore() {
+        if (store == null) {
+            store = MenuStore.createMenuStore(data);
+        }
+        return store;
+    }
+
+    public DateRangeIndex getDateRangeIndex() {
+        if (dateRangeIndex == null) {
+            dateRangeIndex = store != null ? DateRangeIndex.createDateRangeIndex(store) : DateRangeIndex.createDateRangeIndex(data);
+        }
+        return dateRangeIndex;
+    }
+}
@@ -0,0 +1,91 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+//runs a list of analyzers on the same menus, the price statistics all of them need are computed together in one pass
+//the analyzers share the other intermediates of an AnalysisContext as well
+public final class AnalysisPlan {
+    private final List<Analyzer<?>> analyzers;
+    private final Set<PriceStatistics.Statistic> statistics;
+
+    private AnalysisPlan(List<Analyzer<?>> analyzers, Set<PriceStatistics.Statistic> statistics) {
+        this.analyzers = analyzers;
+        this.statistics = statistics;
+    }
+
+    static public AnalysisPlan createAnalysisPlan(List<Analyzer<?>> analyzers) {
+        if(analyzers == null || analyzers.stream().anyMatch(Objects::isNull)) throw new IllegalArgumentException("Illegal analyzer argument!");
+
+        Set<PriceStatistics.Statistic> statistics = EnumSet.noneOf(PriceStatistics.Statistic.class);
+        for (Analyzer<?> analyzer : analyzers) {
+            statistics.addAll(analyzer.getRequiredStatistics());
+        }
+        return new AnalysisPlan(List.copyOf(analyzers), statistics);
+    }
+
+    public List<Analyzer<?>> getAnalyzers() {
+        return analyzers;
+    }
+
+    public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+        return Collections.unmodifiableSet(statistics);
+    }
+
+    //returns one result per analyzer in the order of the analyzers, each equal to analyzer.analyze(data)
+    public List<OptionalWithMessage<?>> execute(List<Menu> data) {
+        return execute(data, null);
+    }
+
+    //like execute, the intermediates of the context are shared with the analyzers run on it before and after
+    public List<OptionalWithMessage<?>> execute(AnalysisContext context) {
+        if(context == null){
+            return invalidData();
+        }
+        return execute(context, null);
+    }
+
+    //like execute, but large histories are analyzed in the pool as described in Analyzer.analyzeParallel
+    public List<OptionalWithMessage<?>> executeParallel(List<Menu> data, ForkJoinPool pool) {
+        if(pool == null) throw new NullPointerException("No pool given");
+        return execute(data, pool);
+    }
+
+    private List<OptionalWithMessage<?>> execute(List<Menu> data, ForkJoinPool pool) {
+        if(data == null){
+            return invalidData();
+        }
+        return execute(AnalysisContext.createAnalysisContext(data), pool);
+    }
+
+    private List<OptionalWithMessage<?>> execute(AnalysisContext context, ForkJoinPool pool) {
+        if(context.isEmpty()){
+            return invalidData();
+        }
+
+        List<Menu> data = context.getData();
+        boolean parallel = pool != null && data.size() >= Analyzer.PARALLEL_THRESHOLD;
+        if (!statistics.isEmpty()) {
+            //all statistics at once, the analyzers then find theirs in the context
+            context.getStatistics(statistics, parallel ? pool : null);
+        }
+        List<OptionalWithMessage<?>> results = new ArrayList<>(analyzers.size());
+        for (Analyzer<?> analyzer : analyzers) {
+            if (parallel && analyzer.getRequiredStatistics().isEmpty()) {
+                results.add(analyzer.analyzeParallel_unsafe(data, pool));
+            } else {
+                results.add(analyzer.analyze_unsafe(context));
+            }
+        }
+        return results;
+    }
+
+    private List<OptionalWithMessage<?>> invalidData() {
+        List<OptionalWithMessage<?>> results = new ArrayList<>(analyzers.size());
+        analyzers.forEach(analyzer -> results.add(OptionalWithMessage.ofMsg("Invalid data argument!")));
+        return results;
+    }
+}
@@ -2,12 +2,20 @@ package de.uniwue.jpp.mensabot.sending.formatting.analyze;
 
 import de.uniwue.jpp.mensabot.dataclasses.Meal;
 import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
 import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.CountMinSketch;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.HyperLogLog;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.KllSketch;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.SpaceSaving;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /*-------------------------------------------------------------------------------------------------------------------------------------
 Each analyzer takes a list of menus as injput value and performs a certain type of analysis on the given data
@@ -25,6 +33,23 @@ Includes the following analyzers:
 - AmountOfDishesAnalyzer:       returns the total amount of dishes
 - PriceRangeAnalyzer:           returns the meals categorized in a specified amount price categories of specified size
 - StandardDeviationAnalyzer:    returns the standard deviation of the prices
+- TopPopularityAnalyzer:        returns the k most frequent meals, most popular first
+
+The following analyzers only look at the last days of the history, counted back from the newest menu, and use a DateRangeIndex:
+- LastDaysAveragePriceAnalyzer:         returns the arithmetic mean price of the meals of the last days
+- LastDaysTotalPriceAnalyzer:           returns the sum of the meal prices of the last days
+- LastDaysAmountOfDishesAnalyzer:       returns the amount of dishes of the last days
+- LastDaysStandardDeviationAnalyzer:    returns the standard deviation of the prices of the last days
+- SlidingAveragePriceAnalyzer:          returns the average price of the last days before each day, ascending by date
+
+The following analyzers use mergeable sketches with bounded memory and return approximate results, see the sketch classes for the
+error bounds:
+- QuantileSketchAnalyzer:               returns a KllSketch of all prices
+- ApproximateMedianPriceAnalyzer:       returns the approximate median price
+- DistinctMealsSketchAnalyzer:          returns a HyperLogLog of all meals
+- ApproximateDistinctMealsAnalyzer:     returns the approximate number of different meals
+- MealFrequencySketchAnalyzer:          returns a CountMinSketch of all meals to look up how often a meal occurs
+- ApproximateTopPopularityAnalyzer:     returns the k most frequent meals counted by a SpaceSaving sketch, most popular first
 -------------------------------------------------------------------------------------------------------------------------------------*/
 
 
@@ -45,24 +70,185 @@ public interface Analyzer<T> {
         return analyze(data).map(convert);
     }
 
-    static private List<Meal> getMealListSortedByPrice(List<Menu> data){
-        return data
+    //histories with fewer menus are analyzed sequentially by analyzeParallel
+    int PARALLEL_THRESHOLD = 4096;
+
+    //analyzes the data in the given pool, the result equals the one of analyze, including ties between equal prices
+    default OptionalWithMessage<T> analyzeParallel(List<Menu> data, ForkJoinPool pool) {
+        if(pool == null) throw new NullPointerException("No pool given");
+        if(data == null || data.isEmpty()){
+            return OptionalWithMessage.ofMsg("Invalid data argument!");
+        }
+        if(data.size() < PARALLEL_THRESHOLD){
+            return analyze_unsafe(data);
+        }
+        return analyzeParallel_unsafe(data, pool);
+    }
+
+    //the default computes the required price statistics in parallel, analyzers without requirements run sequentially
+    default OptionalWithMessage<T> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+        if(getRequiredStatistics().isEmpty()){
+            return analyze_unsafe(data);
+        }
+        return analyze_unsafe(PriceStatistics.computeParallel(data, getRequiredStatistics(), pool));
+    }
+
+    //store based variants, analyzers without a store implementation analyze the recreated list of menus
+    default OptionalWithMessage<T> analyze_unsafe(MenuStore data) {
+        return analyze_unsafe(data.toMenus());
+    }
+
+    default OptionalWithMessage<T> analyze(MenuStore data) {
+        if(data == null || data.isEmpty()){
+            return OptionalWithMessage.ofMsg("Invalid data argument!");
+        }
+        return analyze_unsafe(data);
+    }
+
+    default OptionalWithMessage<String> analyze(MenuStore data, Function<T, String> convert) {
+        if(convert == null){
+            return OptionalWithMessage.ofMsg("No convert-function given!");
+        }
+        return analyze(data).map(convert);
+    }
+
+    //context based variants, analyzers with required statistics use the statistics of the context and the others analyze
+    //its menus, unless they use another intermediate of the context
+    default OptionalWithMessage<T> analyze_unsafe(AnalysisContext context) {
+        if(!getRequiredStatistics().isEmpty()){
+            return analyze_unsafe(context.getStatistics(getRequiredStatistics()));
+        }
+        return analyze_unsafe(context.getData());
+    }
+
+    default OptionalWithMessage<T> analyze(AnalysisContext context) {
+        if(context == null || context.isEmpty()){
+            return OptionalWithMessage.ofMsg("Invalid data argument!");
+        }
+        return analyze_unsafe(context);
+    }
+
+    default OptionalWithMessage<String> analyze(AnalysisContext context, Function<T, String> convert) {
+        if(convert == null){
+            return OptionalWithMessage.ofMsg("No convert-function given!");
+        }
+        return analyze(context).map(convert);
+    }
+
+    //identifies the analyzer and its parameters for the AnalyzerCache, analyzers with equal keys must return equal results
+    //the default is the analyzer itself, so a cache only recognizes the same instance
+    default Object getCacheKey() {
+        return this;
+    }
+
+    //statistics the analyzer can compute its result from, used by AnalysisPlan to analyze several analyzers in one pass
+    //analyzers returning an empty set are always run on the menus themselves
+    default Set<PriceStatistics.Statistic> getRequiredStatistics() {
+        return Set.of();
+    }
+
+    //the statistics contain at least the ones returned by getRequiredStatistics
+    //analyzers without required statistics analyze the menus the statistics were computed from
+    default OptionalWithMessage<T> analyze_unsafe(PriceStatistics statistics) {
+        return analyze_unsafe(statistics.getData());
+    }
+
+    //int sum like IntStream.sum, so an overflow behaves the same as before
+    static private int getSumOfPrices(List<Menu> data){
+        int sum = 0;
+        for(Menu menu : data){
+            for(Meal meal : menu.getMeals()){
+                sum += meal.getPriceInCent();
+            }
+        }
+        return sum;
+    }
+
+    static private int getNumberOfMeals(List<Menu> data){
+        int count = 0;
+        for(Menu menu : data){
+            count += menu.getMeals().size();
+        }
+        return count;
+    }
+
+    static private int[] getEpochDays(List<Menu> data){
+        int[] days = new int[data.size()];
+        for(int i = 0; i < data.size(); i++){
+            days[i] = Math.toIntExact(data.get(i).getDate().toEpochDay());
+        }
+        return days;
+    }
+
+    static private int[] getEpochDays(MenuStore data){
+        int[] days = new int[data.size()];
+        for(int i = 0; i < data.size(); i++){
+            days[i] = data.getEpochDay(i);
+        }
+        return days;
+    }
+
+    //int sum like IntStream.sum, so an overflow behaves the same as in the list based analyzers
+    static private int getSumOfPrices(MenuStore data){
+        int sum = 0;
+        for(int j = 0; j < data.getMealCount(); j++){
+            sum += data.getPrice(j);
+        }
+        return sum;
+    }
+
+    //the k meals with the highest count, for equal counts the one with the lower first occurrence comes first
+    static private List<Meal> selectMostPopular(Iterable<Map.Entry<Meal, int[]>> occurences, int k){
+        return TopKSelection.select(occurences, k, Comparator
+                        .comparingInt((Map.Entry<Meal, int[]> entry) -> entry.getValue()[0])
+                        .thenComparingInt(entry -> -entry.getValue()[1]))
                 .stream()
-                .flatMap(s -> s.getMeals().stream())
-                .sorted(Comparator.comparingInt(Meal::getPriceInCent))
+                .map(Map.Entry::getKey)
                 .toList();
     }
 
+    //modifiable like the Arrays.asList result of the former implementation
+    static private List<Integer> toList(int[] counts){
+        Integer [] result = new Integer [counts.length];
+        for(int i = 0; i < counts.length; i++){
+            result[i] = counts[i];
+        }
+        return Arrays.asList(result);
+    }
+
+    static private long getSumOfPrices(MenuStore data, int menu){
+        long sum = 0;
+        for(int j = data.getMealStart(menu); j < data.getMealEnd(menu); j++){
+            sum += data.getPrice(j);
+        }
+        return sum;
+    }
+
     static Analyzer<Integer> createAveragePriceAnalyzer() {
         return new Analyzer<>(){
             @Override
             public OptionalWithMessage<Integer> analyze_unsafe(List<Menu> data) {
-                List<Meal> mealListSorted = Analyzer.getMealListSortedByPrice(data);
-                int average = mealListSorted
-                        .stream()
-                        .mapToInt(Meal::getPriceInCent)
-                        .sum();
-                return OptionalWithMessage.of(average/mealListSorted.size());
+                return OptionalWithMessage.of(Analyzer.getSumOfPrices(data)/Analyzer.getNumberOfMeals(data));
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(Analyzer.getSumOfPrices(data)/data.getMealCount());
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.SUM);
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of((int) statistics.getSum()/statistics.getCount());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -77,8 +263,27 @@ public interface Analyzer<T> {
         return new Analyzer<>(){
             @Override
             public OptionalWithMessage<Integer> analyze_unsafe(List<Menu> data) {
-                List<Meal> mealListSorted = Analyzer.getMealListSortedByPrice(data);
-                return OptionalWithMessage.of(mealListSorted.get((mealListSorted.size()-1)/2).getPriceInCent());
+                return OptionalWithMessage.of(PriceHistogram.createPriceHistogram(data).getMedian());
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(PriceHistogram.createPriceHistogram(data).getMedian());
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.HISTOGRAM);
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of(statistics.getHistogram().getMedian());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -92,7 +297,34 @@ public interface Analyzer<T> {
         return new Analyzer<>(){
             @Override
             public OptionalWithMessage<Meal> analyze_unsafe(List<Menu> data) {
-                return OptionalWithMessage.of(Analyzer.getMealListSortedByPrice(data).get(0));
+                return OptionalWithMessage.of(PriceHistogram.createPriceHistogram(data).getCheapestMeal());
+            }
+
+            //first meal with the lowest price, like the first element after the stable sort
+            @Override
+            public OptionalWithMessage<Meal> analyze_unsafe(MenuStore data) {
+                int min = 0;
+                for(int j = 1; j < data.getMealCount(); j++){
+                    if(data.getPrice(j) < data.getPrice(min)){
+                        min = j;
+                    }
+                }
+                return OptionalWithMessage.of(data.getMeal(min));
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.MIN);
+            }
+
+            @Override
+            public OptionalWithMessage<Meal> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of(statistics.getMin());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -106,8 +338,34 @@ public interface Analyzer<T> {
         return new Analyzer<>(){
             @Override
             public OptionalWithMessage<Meal> analyze_unsafe(List<Menu> data) {
-                List<Meal> mealListSorted = Analyzer.getMealListSortedByPrice(data);
-                return OptionalWithMessage.of(mealListSorted.get(mealListSorted.size()-1));
+                return OptionalWithMessage.of(PriceHistogram.createPriceHistogram(data).getMostExpensiveMeal());
+            }
+
+            //last meal with the highest price, like the last element after the stable sort
+            @Override
+            public OptionalWithMessage<Meal> analyze_unsafe(MenuStore data) {
+                int max = 0;
+                for(int j = 1; j < data.getMealCount(); j++){
+                    if(data.getPrice(j) >= data.getPrice(max)){
+                        max = j;
+                    }
+                }
+                return OptionalWithMessage.of(data.getMeal(max));
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.MAX);
+            }
+
+            @Override
+            public OptionalWithMessage<Meal> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of(statistics.getMax());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -119,14 +377,33 @@ public interface Analyzer<T> {
 
     static Analyzer<Integer> createTotalPriceAnalyzer() {
         return new Analyzer<>(){
+            //the exact sum of the vector kernels cut to int overflows exactly like the int sum
             @Override
             public OptionalWithMessage<Integer> analyze_unsafe(List<Menu> data) {
-                return OptionalWithMessage.of(
-                        Analyzer.getMealListSortedByPrice(data)
-                                .stream()
-                                .mapToInt(Meal::getPriceInCent)
-                                .sum()
-                );
+                if(!PriceKernels.getDefault().isVectorized()){
+                    return OptionalWithMessage.of(Analyzer.getSumOfPrices(data));
+                }
+                return OptionalWithMessage.of((int) PriceKernels.getDefault().sum(PriceKernels.getPrices(data)));
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(Analyzer.getSumOfPrices(data));
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.SUM);
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of((int) statistics.getSum());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -138,16 +415,39 @@ public interface Analyzer<T> {
 
 
 
-    static Analyzer<Map<LocalDate, Double>> createAveragePricePerDayAnalyzer() {
+    static Analyzer<DoubleTimeSeries> createAveragePricePerDayAnalyzer() {
         return new Analyzer<>(){
             @Override
-            public OptionalWithMessage<Map<LocalDate, Double>> analyze_unsafe(List<Menu> data) {
-                Map<LocalDate, Double> result = new HashMap<>();
+            public OptionalWithMessage<DoubleTimeSeries> analyze_unsafe(List<Menu> data) {
+                double[] values = new double[data.size()];
 
-                for(Menu menu : data){
-                    result.put(menu.getDate(), menu.getMeals().stream().mapToDouble(Meal::getPriceInCent).sum()/menu.getMeals().size());
+                for(int i = 0; i < data.size(); i++){
+                    Menu menu = data.get(i);
+                    values[i] = menu.getMeals().stream().mapToDouble(Meal::getPriceInCent).sum()/menu.getMeals().size();
+                }
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public OptionalWithMessage<DoubleTimeSeries> analyze_unsafe(MenuStore data) {
+                double[] values = new double[data.size()];
+
+                for(int i = 0; i < data.size(); i++){
+                    values[i] = (double) Analyzer.getSumOfPrices(data, i)/(data.getMealEnd(i) - data.getMealStart(i));
                 }
-                return OptionalWithMessage.of(result);
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public OptionalWithMessage<DoubleTimeSeries> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                double[] values = ParallelAnalysis.mapToDouble(data, pool,
+                        menu -> menu.getMeals().stream().mapToDouble(Meal::getPriceInCent).sum()/menu.getMeals().size());
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -157,16 +457,38 @@ public interface Analyzer<T> {
         };
     }
 
-    static Analyzer<Map<LocalDate, Double>> createTotalPricePerDayAnalyzer() {
+    static Analyzer<DoubleTimeSeries> createTotalPricePerDayAnalyzer() {
         return new Analyzer<>(){
             @Override
-            public OptionalWithMessage<Map<LocalDate, Double>> analyze_unsafe(List<Menu> data) {
-                Map<LocalDate, Double> result = new HashMap<>();
+            public OptionalWithMessage<DoubleTimeSeries> analyze_unsafe(List<Menu> data) {
+                double[] values = new double[data.size()];
 
-                for(Menu menu : data){
-                    result.put(menu.getDate(), menu.getMeals().stream().mapToDouble(Meal::getPriceInCent).sum());
+                for(int i = 0; i < data.size(); i++){
+                    values[i] = data.get(i).getMeals().stream().mapToDouble(Meal::getPriceInCent).sum();
+                }
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public OptionalWithMessage<DoubleTimeSeries> analyze_unsafe(MenuStore data) {
+                double[] values = new double[data.size()];
+
+                for(int i = 0; i < data.size(); i++){
+                    values[i] = (double) Analyzer.getSumOfPrices(data, i);
                 }
-                return OptionalWithMessage.of(result);
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public OptionalWithMessage<DoubleTimeSeries> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                double[] values = ParallelAnalysis.mapToDouble(data, pool,
+                        menu -> menu.getMeals().stream().mapToDouble(Meal::getPriceInCent).sum());
+                return OptionalWithMessage.of(DoubleTimeSeries.createDoubleTimeSeries(Analyzer.getEpochDays(data), values));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -202,6 +524,52 @@ public interface Analyzer<T> {
                         .toList());
             }
 
+            //the counts of the context are put into the HashMap in the order the meals occur first, like in the loop above
+            @Override
+            public OptionalWithMessage<List<Meal>> analyze_unsafe(AnalysisContext context) {
+                HashMap<Meal, Integer> occurences = new HashMap<>();
+                context.getOccurrences().forEach(occurences::put);
+
+                return OptionalWithMessage.of(occurences
+                        .keySet()
+                        .stream()
+                        .sorted(Comparator
+                                .comparingInt(occurences::get))
+                        .toList());
+            }
+
+            //the chunks count in insertion ordered maps, the merged map is put into a HashMap in the order the meals occur first,
+            //so that meals with equal counts are sorted like in the sequential analysis
+            @Override
+            public OptionalWithMessage<List<Meal>> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                LinkedHashMap<Meal, Integer> counted = ParallelAnalysis.mapReduce(data, pool, chunk -> {
+                    LinkedHashMap<Meal, Integer> occurences = new LinkedHashMap<>();
+                    for(Menu menu : chunk){
+                        for(Meal meal : menu.getMeals()){
+                            occurences.merge(meal, 1, Integer::sum);
+                        }
+                    }
+                    return occurences;
+                }, (left, right) -> {
+                    right.forEach((meal, count) -> left.merge(meal, count, Integer::sum));
+                    return left;
+                });
+                HashMap<Meal, Integer> occurences = new HashMap<>();
+                counted.forEach(occurences::put);
+
+                return OptionalWithMessage.of(occurences
+                        .keySet()
+                        .stream()
+                        .sorted(Comparator
+                                .comparingInt(occurences::get))
+                        .toList());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
+            }
+
             @Override
             public String toString(){
                 return "PopularityAnalyzer";
@@ -210,13 +578,86 @@ public interface Analyzer<T> {
     }
 
 
-    static Analyzer<Map<LocalDate, Integer>> createAmountOfDishesPerDayAnalyzer() {
+    //counts every meal once and keeps only the k most frequent ones in a heap, meals with equal counts are ordered by their
+    //first occurrence in the data
+    static Analyzer<List<Meal>> createTopPopularityAnalyzer(int k) {
+        if(k <= 0) throw new IllegalArgumentException("Es muss mindestens ein Gericht ausgegeben werden");
         return new Analyzer<>(){
             @Override
-            public OptionalWithMessage<Map<LocalDate, Integer>> analyze_unsafe(List<Menu> data) {
-                return OptionalWithMessage.of(data
-                        .stream()
-                        .collect(Collectors.toMap(Menu::getDate, s -> s.getMeals().size())));
+            public OptionalWithMessage<List<Meal>> analyze_unsafe(List<Menu> data) {
+                //count and index of the first occurrence of each meal
+                Map<Meal, int[]> occurences = new HashMap<>();
+                int index = 0;
+                for(Menu menu : data){
+                    for(Meal meal : menu.getMeals()){
+                        int[] counter = occurences.get(meal);
+                        if(counter == null){
+                            occurences.put(meal, new int[]{1, index});
+                        }else{
+                            counter[0]++;
+                        }
+                        index++;
+                    }
+                }
+
+                return OptionalWithMessage.of(Analyzer.selectMostPopular(occurences.entrySet(), k));
+            }
+
+            //the occurrences of the context are ordered by first occurrence, so their position can be used instead of the index
+            @Override
+            public OptionalWithMessage<List<Meal>> analyze_unsafe(AnalysisContext context) {
+                List<Map.Entry<Meal, int[]>> occurences = new ArrayList<>(context.getOccurrences().size());
+                int position = 0;
+                for(Map.Entry<Meal, Integer> entry : context.getOccurrences().entrySet()){
+                    occurences.add(Map.entry(entry.getKey(), new int[]{entry.getValue(), position++}));
+                }
+                return OptionalWithMessage.of(Analyzer.selectMostPopular(occurences, k));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + "(" + k + ")";
+            }
+
+            @Override
+            public String toString(){
+                return "TopPopularityAnalyzer";
+            }
+        };
+    }
+
+    //a date must not occur twice
+    static Analyzer<IntTimeSeries> createAmountOfDishesPerDayAnalyzer() {
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyze_unsafe(List<Menu> data) {
+                int[] values = new int[data.size()];
+
+                for(int i = 0; i < data.size(); i++){
+                    values[i] = data.get(i).getMeals().size();
+                }
+                return OptionalWithMessage.of(IntTimeSeries.createIntTimeSeries(Analyzer.getEpochDays(data), values, false));
+            }
+
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyze_unsafe(MenuStore data) {
+                int[] values = new int[data.size()];
+
+                for(int i = 0; i < data.size(); i++){
+                    values[i] = data.getMealEnd(i) - data.getMealStart(i);
+                }
+                return OptionalWithMessage.of(IntTimeSeries.createIntTimeSeries(Analyzer.getEpochDays(data), values, false));
+            }
+
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                int[] values = ParallelAnalysis.mapToInt(data, pool, menu -> menu.getMeals().size());
+                return OptionalWithMessage.of(IntTimeSeries.createIntTimeSeries(Analyzer.getEpochDays(data), values, false));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -235,6 +676,26 @@ public interface Analyzer<T> {
                         .sum());
             }
 
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(data.getMealCount());
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.COUNT);
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of(statistics.getCount());
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
+            }
+
             @Override
             public String toString(){
                 return "AmountOfDishesAnalyzer";
@@ -245,17 +706,56 @@ public interface Analyzer<T> {
     //returns the standard deviation of meal prices grouped into days
     static Analyzer<Double> createStandardDeviationAnalyzer() {
         return new Analyzer<>(){
+            //the integer mean is used like by the vector kernels, the squared deviations are summed exactly like from the statistics
             @Override
             public OptionalWithMessage<Double> analyze_unsafe(List<Menu> data) {
-                OptionalWithMessage<Integer> sum = Analyzer.createAmountOfDishesAnalyzer().analyze(data);
-                OptionalWithMessage<Integer> mean = Analyzer.createAveragePriceAnalyzer().analyze(data);
-                 double var = data.stream()
-                         .flatMap(s -> s.getMeals().stream())
-                         .mapToDouble(Meal::getPriceInCent)
-                         .map(s -> (s - mean.get()))
-                         .map(s -> Math.pow(s,2))
-                         .sum()/sum.get();
-                 return OptionalWithMessage.of(Math.sqrt(var));
+                int count = Analyzer.getNumberOfMeals(data);
+                if(count == 0){
+                    return OptionalWithMessage.ofMsg("Analyzing is not possible");
+                }
+                if(PriceKernels.getDefault().isVectorized()){
+                    return OptionalWithMessage.of(PriceKernels.getDefault().standardDeviation(PriceKernels.getPrices(data)));
+                }
+                long mean = Analyzer.getSumOfPrices(data)/count;
+                long squaredDeviations = 0;
+                for(Menu menu : data){
+                    for(Meal meal : menu.getMeals()){
+                        long deviation = meal.getPriceInCent() - mean;
+                        squaredDeviations += deviation * deviation;
+                    }
+                }
+                return OptionalWithMessage.of(Math.sqrt((double) squaredDeviations / count));
+            }
+
+            //uses the integer mean of the AveragePriceAnalyzer as well
+            @Override
+            public OptionalWithMessage<Double> analyze_unsafe(MenuStore data) {
+                int mean = Analyzer.getSumOfPrices(data)/data.getMealCount();
+                double var = 0;
+                for(int j = 0; j < data.getMealCount(); j++){
+                    double deviation = data.getPrice(j) - mean;
+                    var += deviation * deviation;
+                }
+                return OptionalWithMessage.of(Math.sqrt(var/data.getMealCount()));
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.SUM, PriceStatistics.Statistic.SUM_OF_SQUARES);
+            }
+
+            //sum of (p - mean)^2 expanded to sum(p^2) - 2*mean*sum(p) + count*mean^2, exact in long for integer prices
+            @Override
+            public OptionalWithMessage<Double> analyze_unsafe(PriceStatistics statistics) {
+                long count = statistics.getCount();
+                long mean = (int) statistics.getSum()/statistics.getCount();
+                long squaredDeviations = statistics.getSumOfSquares() - 2 * mean * statistics.getSum() + count * mean * mean;
+                return OptionalWithMessage.of(Math.sqrt((double) squaredDeviations/count));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
             }
 
             @Override
@@ -270,21 +770,37 @@ public interface Analyzer<T> {
         return new Analyzer<>(){
             @Override
             public OptionalWithMessage<List<Integer>> analyze_unsafe(List<Menu> data) {
-                Integer [] result = new Integer [numberOfCategories+1];
-                Arrays.fill(result, 0);
-                List<Meal> mealList = data
-                        .stream()
-                        .flatMap(s -> s.getMeals().stream())
-                        .toList();
-
-                for(Meal meal : mealList){
-                    if(meal.getPriceInCent()/sizeCent >= numberOfCategories){
-                        result[numberOfCategories]++;
-                    } else {
-                        result[meal.getPriceInCent()/sizeCent]++;
+                if(PriceKernels.getDefault().isVectorized()){
+                    return OptionalWithMessage.of(Analyzer.toList(PriceKernels.getDefault().countRanges(PriceKernels.getPrices(data), numberOfCategories, sizeCent)));
+                }
+                PriceKernels.checkCategories(numberOfCategories, sizeCent);
+                int[] ranges = new int[numberOfCategories + 1];
+                for(Menu menu : data){
+                    for(Meal meal : menu.getMeals()){
+                        ranges[Math.min(meal.getPriceInCent() / sizeCent, numberOfCategories)]++;
                     }
                 }
-                return OptionalWithMessage.of(Arrays.asList(result));
+                return OptionalWithMessage.of(Analyzer.toList(ranges));
+            }
+
+            @Override
+            public OptionalWithMessage<List<Integer>> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(Analyzer.toList(PriceHistogram.createPriceHistogram(data).countRanges(numberOfCategories, sizeCent)));
+            }
+
+            @Override
+            public Set<PriceStatistics.Statistic> getRequiredStatistics() {
+                return EnumSet.of(PriceStatistics.Statistic.HISTOGRAM);
+            }
+
+            @Override
+            public OptionalWithMessage<List<Integer>> analyze_unsafe(PriceStatistics statistics) {
+                return OptionalWithMessage.of(Analyzer.toList(statistics.getHistogram().countRanges(numberOfCategories, sizeCent)));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + "(" + numberOfCategories + "," + sizeCent + ")";
             }
 
             @Override
@@ -293,4 +809,224 @@ public interface Analyzer<T> {
             }
         };
     }
+
+    static Analyzer<Integer> createLastDaysAveragePriceAnalyzer(int days) {
+        return Analyzer.createLastDaysAnalyzer("LastDaysAveragePriceAnalyzer", days, DateRangeIndex::getAveragePrice);
+    }
+
+    static Analyzer<Integer> createLastDaysTotalPriceAnalyzer(int days) {
+        return Analyzer.createLastDaysAnalyzer("LastDaysTotalPriceAnalyzer", days, DateRangeIndex::getTotalPrice);
+    }
+
+    static Analyzer<Integer> createLastDaysAmountOfDishesAnalyzer(int days) {
+        return Analyzer.createLastDaysAnalyzer("LastDaysAmountOfDishesAnalyzer", days, DateRangeIndex::getNumberOfMeals);
+    }
+
+    static Analyzer<Double> createLastDaysStandardDeviationAnalyzer(int days) {
+        return Analyzer.createLastDaysAnalyzer("LastDaysStandardDeviationAnalyzer", days, DateRangeIndex::getStandardDeviation);
+    }
+
+    //analyzes the range from days-1 days before the newest menu up to the newest menu
+    static private <T> Analyzer<T> createLastDaysAnalyzer(String name, int days, RangeQuery<T> query) {
+        if(days <= 0) throw new IllegalArgumentException("Es muss mindestens ein Tag analysiert werden");
+        BiFunction<DateRangeIndex, LocalDate, OptionalWithMessage<T>> lastDays = (index, newest) -> query.apply(index, newest.minusDays(days - 1), newest);
+
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<T> analyze_unsafe(List<Menu> data) {
+                DateRangeIndex index = DateRangeIndex.createDateRangeIndex(data);
+                return index.getLastDate().flatMap(newest -> lastDays.apply(index, newest));
+            }
+
+            @Override
+            public OptionalWithMessage<T> analyze_unsafe(MenuStore data) {
+                DateRangeIndex index = DateRangeIndex.createDateRangeIndex(data);
+                return index.getLastDate().flatMap(newest -> lastDays.apply(index, newest));
+            }
+
+            @Override
+            public OptionalWithMessage<T> analyze_unsafe(AnalysisContext context) {
+                DateRangeIndex index = context.getDateRangeIndex();
+                return index.getLastDate().flatMap(newest -> lastDays.apply(index, newest));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + "(" + days + ")";
+            }
+
+            @Override
+            public String toString(){
+                return name;
+            }
+        };
+    }
+
+    interface RangeQuery<T> {
+        OptionalWithMessage<T> apply(DateRangeIndex index, LocalDate from, LocalDate to);
+    }
+
+    //the value for a day is the average price of all meals between days-1 days before and the day itself
+    static Analyzer<IntTimeSeries> createSlidingAveragePriceAnalyzer(int days) {
+        if(days <= 0) throw new IllegalArgumentException("Es muss mindestens ein Tag analysiert werden");
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyze_unsafe(List<Menu> data) {
+                return OptionalWithMessage.of(DateRangeIndex.createDateRangeIndex(data).getSlidingAveragePrice(days));
+            }
+
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyze_unsafe(MenuStore data) {
+                return OptionalWithMessage.of(DateRangeIndex.createDateRangeIndex(data).getSlidingAveragePrice(days));
+            }
+
+            @Override
+            public OptionalWithMessage<IntTimeSeries> analyze_unsafe(AnalysisContext context) {
+                return OptionalWithMessage.of(context.getDateRangeIndex().getSlidingAveragePrice(days));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + "(" + days + ")";
+            }
+
+            @Override
+            public String toString(){
+                return "SlidingAveragePriceAnalyzer";
+            }
+        };
+    }
+
+    static Analyzer<KllSketch> createQuantileSketchAnalyzer(int k) {
+        return Analyzer.createSketchAnalyzer("QuantileSketchAnalyzer", "(" + k + ")", () -> new KllSketch(k),
+                (sketch, meal) -> sketch.add(meal.getPriceInCent()), KllSketch::merge);
+    }
+
+    static Analyzer<HyperLogLog> createDistinctMealsSketchAnalyzer(int precision) {
+        return Analyzer.createSketchAnalyzer("DistinctMealsSketchAnalyzer", "(" + precision + ")", () -> new HyperLogLog(precision),
+                HyperLogLog::add, HyperLogLog::merge);
+    }
+
+    static Analyzer<CountMinSketch> createMealFrequencySketchAnalyzer(double epsilon, double delta) {
+        return Analyzer.createSketchAnalyzer("MealFrequencySketchAnalyzer", "(" + epsilon + "," + delta + ")", () -> new CountMinSketch(epsilon, delta),
+                CountMinSketch::add, CountMinSketch::merge);
+    }
+
+    //adds every meal to a new sketch, analyzeParallel fills one sketch per chunk and merges them
+    static private <S> Analyzer<S> createSketchAnalyzer(String name, String parameters, Supplier<S> createSketch, BiConsumer<S, Meal> add, BiConsumer<S, S> merge) {
+        //creates one sketch right away, so that invalid parameters are reported when the analyzer is created
+        createSketch.get();
+
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<S> analyze_unsafe(List<Menu> data) {
+                S sketch = createSketch.get();
+                for(Menu menu : data){
+                    for(Meal meal : menu.getMeals()){
+                        add.accept(sketch, meal);
+                    }
+                }
+                return OptionalWithMessage.of(sketch);
+            }
+
+            @Override
+            public OptionalWithMessage<S> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                return OptionalWithMessage.of(ParallelAnalysis.mapReduce(data, pool, chunk -> analyze_unsafe(chunk).get(), (left, right) -> {
+                    merge.accept(left, right);
+                    return left;
+                }));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + parameters;
+            }
+
+            @Override
+            public String toString(){
+                return name;
+            }
+        };
+    }
+
+    //the median of a KllSketch with the default k, the rank of the result is off by at most about 1.65% of the number of meals
+    static Analyzer<Integer> createApproximateMedianPriceAnalyzer() {
+        Analyzer<KllSketch> sketchAnalyzer = Analyzer.createQuantileSketchAnalyzer(KllSketch.DEFAULT_K);
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<Integer> analyze_unsafe(List<Menu> data) {
+                return sketchAnalyzer.analyze_unsafe(data).map(KllSketch::getMedian);
+            }
+
+            @Override
+            public OptionalWithMessage<Integer> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                return sketchAnalyzer.analyzeParallel_unsafe(data, pool).map(KllSketch::getMedian);
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
+            }
+
+            @Override
+            public String toString(){
+                return "ApproximateMedianPriceAnalyzer";
+            }
+        };
+    }
+
+    //the estimate of a HyperLogLog with the default precision, the relative standard error is about 1.6%
+    static Analyzer<Long> createApproximateDistinctMealsAnalyzer() {
+        Analyzer<HyperLogLog> sketchAnalyzer = Analyzer.createDistinctMealsSketchAnalyzer(HyperLogLog.DEFAULT_PRECISION);
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<Long> analyze_unsafe(List<Menu> data) {
+                return sketchAnalyzer.analyze_unsafe(data).map(HyperLogLog::estimate);
+            }
+
+            @Override
+            public OptionalWithMessage<Long> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                return sketchAnalyzer.analyzeParallel_unsafe(data, pool).map(HyperLogLog::estimate);
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString();
+            }
+
+            @Override
+            public String toString(){
+                return "ApproximateDistinctMealsAnalyzer";
+            }
+        };
+    }
+
+    //SpaceSaving with the given number of counters, every meal occurring more often than 1/capacity of all meals is found
+    //and its count is too high by at most the number of meals divided by capacity
+    static Analyzer<List<Meal>> createApproximateTopPopularityAnalyzer(int k, int capacity) {
+        if(k <= 0 || k > capacity) throw new IllegalArgumentException("Es müssen zwischen 1 und capacity Gerichte ausgegeben werden");
+        Analyzer<SpaceSaving> sketchAnalyzer = Analyzer.createSketchAnalyzer("HeavyHittersSketchAnalyzer", "(" + capacity + ")", () -> new SpaceSaving(capacity),
+                SpaceSaving::add, SpaceSaving::merge);
+        return new Analyzer<>(){
+            @Override
+            public OptionalWithMessage<List<Meal>> analyze_unsafe(List<Menu> data) {
+                return sketchAnalyzer.analyze_unsafe(data).map(sketch -> sketch.getTop(k));
+            }
+
+            @Override
+            public OptionalWithMessage<List<Meal>> analyzeParallel_unsafe(List<Menu> data, ForkJoinPool pool) {
+                return sketchAnalyzer.analyzeParallel_unsafe(data, pool).map(sketch -> sketch.getTop(k));
+            }
+
+            @Override
+            public Object getCacheKey() {
+                return toString() + "(" + k + "," + capacity + ")";
+            }
+
+            @Override
+            public String toString(){
+                return "ApproximateTopPopularityAnalyzer";
+            }
+        };
+    }
 }
@@ -0,0 +1,96 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.util.*;
+import java.util.function.Function;
+
+//remembers the results of analyzers, so that analyzing an unchanged history again does not cost anything
+//results are identified by Analyzer.getCacheKey and a version of the data supplied by the caller, which has to change
+//whenever the data changes, e.g. a counter that is increased on every modification of the history
+//holds at most maxSize results, the least recently used one is removed first
+public final class AnalyzerCache {
+    private final Map<Key, OptionalWithMessage<?>> results;
+    private long hits;
+    private long misses;
+
+    private AnalyzerCache(int maxSize) {
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, OptionalWithMessage<?>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    static public AnalyzerCache createAnalyzerCache(int maxSize) {
+        if(maxSize <= 0) throw new IllegalArgumentException("Die Größe des Caches muss positiv sein");
+        return new AnalyzerCache(maxSize);
+    }
+
+    //returns the cached result of the analyzer for this version of the data or analyzes the data and caches the result
+    @SuppressWarnings("unchecked")
+    public synchronized <T> OptionalWithMessage<T> analyze(Analyzer<T> analyzer, List<Menu> data, Object version) {
+        if(analyzer == null || version == null) throw new NullPointerException("At least one of the arguments was null");
+
+        Key key = new Key(analyzer.getCacheKey(), version);
+        OptionalWithMessage<?> result = results.get(key);
+        if (result != null) {
+            hits++;
+            return (OptionalWithMessage<T>) result;
+        }
+        misses++;
+        OptionalWithMessage<T> analyzed = analyzer.analyze(data);
+        results.put(key, analyzed);
+        return analyzed;
+    }
+
+    public synchronized <T> OptionalWithMessage<String> analyze(Analyzer<T> analyzer, List<Menu> data, Object version, Function<T, String> convert) {
+        if(convert == null){
+            return OptionalWithMessage.ofMsg("No convert-function given!");
+        }
+        return analyze(analyzer, data, version).map(convert);
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AnalyzerCache[size=" + results.size() + ", hits=" + hits + ", misses=" + misses + "]";
+    }
+
+    private static final class Key {
+        private final Object analyzer;
+        private final Object version;
+
+        private Key(Object analyzer, Object version) {
+            this.analyzer = analyzer;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && analyzer.equals(other.analyzer) && version.equals(other.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * analyzer.hashCode() + version.hashCode();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//prefix sums of the meal prices of a history ordered by date, built once in O(n log n)
+//afterwards the price statistics of any date range are computed with two binary searches, sliding windows in O(n)
+//the results equal the ones of the corresponding analyzers on the menus of the range
+public final class DateRangeIndex {
+    //epochDay is ascending, entry i of the prefix arrays holds the values of the menus 0 to i-1
+    private final long[] epochDay;
+    private final long[] count;
+    private final long[] sum;
+    private final long[] sumOfSquares;
+
+    private DateRangeIndex(long[] epochDay, long[] count, long[] sum, long[] sumOfSquares) {
+        this.epochDay = epochDay;
+        this.count = count;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    //the menus may be in any order
+    static public DateRangeIndex createDateRangeIndex(List<Menu> data) {
+        if(data == null) throw new IllegalArgumentException("Es muss eine Liste an Menüs übergeben werden");
+
+        long[] days = new long[data.size()];
+        long[] counts = new long[data.size()];
+        long[] sums = new long[data.size()];
+        long[] squares = new long[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            Menu menu = data.get(i);
+            days[i] = menu.getDate().toEpochDay();
+            for (Meal meal : menu.getMeals()) {
+                long price = meal.getPriceInCent();
+                counts[i]++;
+                sums[i] += price;
+                squares[i] += price * price;
+            }
+        }
+        return build(days, counts, sums, squares);
+    }
+
+    static public DateRangeIndex createDateRangeIndex(MenuStore data) {
+        if(data == null) throw new IllegalArgumentException("Es muss ein MenuStore übergeben werden");
+
+        long[] days = new long[data.size()];
+        long[] counts = new long[data.size()];
+        long[] sums = new long[data.size()];
+        long[] squares = new long[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            days[i] = data.getEpochDay(i);
+            counts[i] = data.getMealEnd(i) - data.getMealStart(i);
+            for (int j = data.getMealStart(i); j < data.getMealEnd(i); j++) {
+                long price = data.getPrice(j);
+                sums[i] += price;
+                squares[i] += price * price;
+            }
+        }
+        return build(days, counts, sums, squares);
+    }
+
+    static private DateRangeIndex build(long[] days, long[] counts, long[] sums, long[] squares) {
+        int n = days.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> days[i]));
+
+        long[] epochDay = new long[n];
+        long[] count = new long[n + 1];
+        long[] sum = new long[n + 1];
+        long[] sumOfSquares = new long[n + 1];
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            epochDay[k] = days[i];
+            count[k + 1] = count[k] + counts[i];
+            sum[k + 1] = sum[k] + sums[i];
+            sumOfSquares[k + 1] = sumOfSquares[k] + squares[i];
+        }
+        return new DateRangeIndex(epochDay, count, sum, sumOfSquares);
+    }
+
+    public boolean isEmpty() {
+        return epochDay.length == 0;
+    }
+
+    public OptionalWithMessage<LocalDate> getFirstDate() {
+        return isEmpty() ? OptionalWithMessage.ofMsg("Invalid data argument!") : OptionalWithMessage.of(LocalDate.ofEpochDay(epochDay[0]));
+    }
+
+    public OptionalWithMessage<LocalDate> getLastDate() {
+        return isEmpty() ? OptionalWithMessage.ofMsg("Invalid data argument!") : OptionalWithMessage.of(LocalDate.ofEpochDay(epochDay[epochDay.length - 1]));
+    }
+
+    //all ranges include from and to, like AmountOfDishesAnalyzer
+    public OptionalWithMessage<Integer> getNumberOfMeals(LocalDate from, LocalDate to) {
+        return range(from, to).map(r -> (int) (count[r[1]] - count[r[0]]));
+    }
+
+    //like TotalPriceAnalyzer, an overflow of the int sum behaves the same
+    public OptionalWithMessage<Integer> getTotalPrice(LocalDate from, LocalDate to) {
+        return range(from, to).map(r -> (int) (sum[r[1]] - sum[r[0]]));
+    }
+
+    //like AveragePriceAnalyzer, integer division of the sum
+    public OptionalWithMessage<Integer> getAveragePrice(LocalDate from, LocalDate to) {
+        return range(from, to).map(r -> (int) (sum[r[1]] - sum[r[0]]) / (int) (count[r[1]] - count[r[0]]));
+    }
+
+    //like StandardDeviationAnalyzer, deviations from the integer mean
+    public OptionalWithMessage<Double> getStandardDeviation(LocalDate from, LocalDate to) {
+        return range(from, to).map(r -> standardDeviation(r[0], r[1]));
+    }
+
+    //average price of the days-long window ending at each date of the history, ascending by date
+    public IntTimeSeries getSlidingAveragePrice(int days) {
+        return slideInt(days, (from, to) -> (int) (sum[to] - sum[from]) / (int) (count[to] - count[from]));
+    }
+
+    public IntTimeSeries getSlidingTotalPrice(int days) {
+        return slideInt(days, (from, to) -> (int) (sum[to] - sum[from]));
+    }
+
+    public IntTimeSeries getSlidingNumberOfMeals(int days) {
+        return slideInt(days, (from, to) -> (int) (count[to] - count[from]));
+    }
+
+    public DoubleTimeSeries getSlidingStandardDeviation(int days) {
+        int[] windows = slide(days);
+        int size = windows.length / 2;
+        int[] dates = new int[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            dates[i] = Math.toIntExact(epochDay[windows[2 * i + 1] - 1]);
+            values[i] = standardDeviation(windows[2 * i], windows[2 * i + 1]);
+        }
+        return DoubleTimeSeries.ofSorted(dates, values);
+    }
+
+    private interface WindowFunction {
+        int apply(int from, int to);
+    }
+
+    private IntTimeSeries slideInt(int days, WindowFunction function) {
+        int[] windows = slide(days);
+        int size = windows.length / 2;
+        int[] dates = new int[size];
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            dates[i] = Math.toIntExact(epochDay[windows[2 * i + 1] - 1]);
+            values[i] = function.apply(windows[2 * i], windows[2 * i + 1]);
+        }
+        return IntTimeSeries.ofSorted(dates, values);
+    }
+
+    //the prefix indexes from, to of the window [date - days + 1, date] of each date, ascending by date
+    private int[] slide(int days) {
+        if(days <= 0) throw new IllegalArgumentException("Das Fenster muss mindestens einen Tag umfassen");
+        int[] windows = new int[2 * epochDay.length];
+        int size = 0;
+        int from = 0;
+        for (int to = 0; to < epochDay.length; to++) {
+            if (to + 1 < epochDay.length && epochDay[to + 1] == epochDay[to]) {
+                continue;
+            }
+            while (epochDay[from] <= epochDay[to] - days) {
+                from++;
+            }
+            windows[size++] = from;
+            windows[size++] = to + 1;
+        }
+        return Arrays.copyOf(windows, size);
+    }
+
+    private double standardDeviation(int from, int to) {
+        long n = count[to] - count[from];
+        long total = sum[to] - sum[from];
+        long mean = (int) total / (int) n;
+        long squaredDeviations = sumOfSquares[to] - sumOfSquares[from] - 2 * mean * total + n * mean * mean;
+        return Math.sqrt((double) squaredDeviations / n);
+    }
+
+    //prefix indexes of the first menu at or after from and of the first menu after to
+    private OptionalWithMessage<int[]> range(LocalDate from, LocalDate to) {
+        if(from == null || to == null) throw new NullPointerException("At least one of the dates was null");
+        int start = lowerBound(from.toEpochDay());
+        int end = lowerBound(to.toEpochDay() + 1);
+        if (start >= end) {
+            return OptionalWithMessage.ofMsg("No menu found between " + from + " and " + to);
+        }
+        return OptionalWithMessage.of(new int[]{start, end});
+    }
+
+    private int lowerBound(long day) {
+        int low = 0;
+        int high = epochDay.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDay[middle] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,293 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.MealPool;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.sending.Importer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+//all-time statistics of a log that are updated with every new menu instead of being recomputed from the whole history
+//menus have to be added oldest first, Saver.createTrackingSaver adds every menu that was logged successfully
+//the state is stored in <logfile>.stats together with size and modification time of the log, so that changes of the log
+//by other savers are noticed and the statistics are rebuilt from the log
+public final class IncrementalStatistics {
+    static private final String HEADER = "mensabot-stats;1";
+
+    private final Path logfile;
+    private long count;
+    private long sum;
+    //Welford's online algorithm, m2 is the sum of squared differences from the current mean
+    private double mean;
+    private double m2;
+    private final PriceHistogram histogram = new PriceHistogram();
+    private final Map<Meal, Integer> popularity = new HashMap<>();
+    private Meal cheapestMeal;
+    private Meal mostExpensiveMeal;
+
+    private IncrementalStatistics(Path logfile) {
+        this.logfile = logfile;
+    }
+
+    public static Path getStatisticsPath(Path logfile) {
+        return logfile.resolveSibling(logfile.getFileName() + ".stats");
+    }
+
+    //empty statistics for the log, nothing is read or written
+    static public IncrementalStatistics createEmpty(Path logfile) {
+        if(logfile == null) throw new IllegalArgumentException("Es muss eine Logdatei angegeben werden");
+        return new IncrementalStatistics(logfile);
+    }
+
+    //reads the stored statistics of the log, if they are missing or outdated the log is imported with the importer and the
+    //statistics are stored again, a missing log results in empty statistics
+    static public OptionalWithMessage<IncrementalStatistics> load(Path logfile, Importer importer) {
+        if(logfile == null || importer == null) throw new NullPointerException("At least one of the arguments was null");
+        if (!Files.exists(logfile)) {
+            return OptionalWithMessage.of(createEmpty(logfile));
+        }
+        try {
+            Optional<IncrementalStatistics> stored = read(logfile);
+            if (stored.isPresent()) {
+                return OptionalWithMessage.of(stored.get());
+            }
+        } catch (IOException | RuntimeException e) {
+            //unreadable statistics are rebuilt like outdated ones
+        }
+        return importer.getAll(logfile).map(menus -> build(logfile, menus));
+    }
+
+    //same as above for a caller that imported the log already, missing or outdated statistics are built from the given menus
+    //instead of importing the log again, the menus have to be the whole log newest first like Importer.getAll returns them
+    static public IncrementalStatistics load(Path logfile, List<Menu> menus) {
+        if(logfile == null || menus == null) throw new NullPointerException("At least one of the arguments was null");
+        if (!Files.exists(logfile)) {
+            return createEmpty(logfile);
+        }
+        try {
+            Optional<IncrementalStatistics> stored = read(logfile);
+            if (stored.isPresent()) {
+                return stored.get();
+            }
+        } catch (IOException | RuntimeException e) {
+            //unreadable statistics are rebuilt like outdated ones
+        }
+        return build(logfile, menus);
+    }
+
+    static private IncrementalStatistics build(Path logfile, List<Menu> menus) {
+        IncrementalStatistics statistics = createEmpty(logfile);
+        for (int i = menus.size() - 1; i >= 0; i--) {
+            statistics.add(menus.get(i));
+        }
+        //statistics that can not be stored are simply rebuilt by the next load
+        statistics.store();
+        return statistics;
+    }
+
+    public Path getLogfile() {
+        return logfile;
+    }
+
+    public synchronized void add(Menu menu) {
+        Meal menuCheapest = null;
+        Meal menuMostExpensive = null;
+        for (Meal meal : menu.getMeals()) {
+            int price = meal.getPriceInCent();
+            count++;
+            sum += price;
+            double delta = price - mean;
+            mean += delta / count;
+            m2 += delta * (price - mean);
+            histogram.add(price, 1);
+            popularity.merge(meal, 1, Integer::sum);
+            if (menuCheapest == null || price < menuCheapest.getPriceInCent()) {
+                menuCheapest = meal;
+            }
+            if (menuMostExpensive == null || price >= menuMostExpensive.getPriceInCent()) {
+                menuMostExpensive = meal;
+            }
+        }
+        //the analyzers see the newest menu first, so a newer menu wins ties for the cheapest and an older for the most expensive meal
+        if (menuCheapest != null && (cheapestMeal == null || menuCheapest.getPriceInCent() <= cheapestMeal.getPriceInCent())) {
+            cheapestMeal = menuCheapest;
+        }
+        if (menuMostExpensive != null && (mostExpensiveMeal == null || menuMostExpensive.getPriceInCent() > mostExpensiveMeal.getPriceInCent())) {
+            mostExpensiveMeal = menuMostExpensive;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getSum() {
+        return sum;
+    }
+
+    //like the AveragePriceAnalyzer, integer division of the sum
+    public synchronized OptionalWithMessage<Integer> getAveragePrice() {
+        return checkNotEmpty().map(ignored -> (int) sum / (int) count);
+    }
+
+    //like the TotalPriceAnalyzer, an overflow of the int sum behaves the same
+    public synchronized OptionalWithMessage<Integer> getTotalPrice() {
+        return checkNotEmpty().map(ignored -> (int) sum);
+    }
+
+    public synchronized OptionalWithMessage<Integer> getNumberOfMeals() {
+        return checkNotEmpty().map(ignored -> (int) count);
+    }
+
+    public synchronized OptionalWithMessage<Double> getMean() {
+        return checkNotEmpty().map(ignored -> mean);
+    }
+
+    //population variance around the exact mean, the StandardDeviationAnalyzer uses the integer mean instead
+    public synchronized OptionalWithMessage<Double> getVariance() {
+        return checkNotEmpty().map(ignored -> m2 / count);
+    }
+
+    public synchronized OptionalWithMessage<Double> getStandardDeviation() {
+        return getVariance().map(Math::sqrt);
+    }
+
+    //like the StandardDeviationAnalyzer, the deviations are taken from the integer mean of getAveragePrice
+    //the squared deviations are summed exactly over the prices of the histogram
+    public synchronized OptionalWithMessage<Double> getAnalyzerStandardDeviation() {
+        return getAveragePrice().map(average -> {
+            long[] squaredDeviations = new long[1];
+            histogram.forEach((price, times) -> squaredDeviations[0] += (long) times * (price - average) * (price - average));
+            return Math.sqrt((double) squaredDeviations[0] / count);
+        });
+    }
+
+    public synchronized OptionalWithMessage<Integer> getMedian() {
+        return checkNotEmpty().map(ignored -> histogram.getMedian());
+    }
+
+    public synchronized OptionalWithMessage<Meal> getCheapestMeal() {
+        return checkNotEmpty().map(ignored -> cheapestMeal);
+    }
+
+    public synchronized OptionalWithMessage<Meal> getMostExpensiveMeal() {
+        return checkNotEmpty().map(ignored -> mostExpensiveMeal);
+    }
+
+    //all meals sorted ascending by their number of occurrences like the PopularityAnalyzer
+    public synchronized OptionalWithMessage<List<Meal>> getPopularity() {
+        return checkNotEmpty().map(ignored -> popularity
+                .keySet()
+                .stream()
+                .sorted(Comparator.comparingInt(popularity::get))
+                .toList());
+    }
+
+    //the k most frequent meals, most popular first, meals with equal counts are ordered by name and price
+    public synchronized OptionalWithMessage<List<Meal>> getMostPopular(int k) {
+        if(k <= 0) throw new IllegalArgumentException("Es muss mindestens ein Gericht ausgegeben werden");
+        return checkNotEmpty().map(ignored -> TopKSelection.select(popularity.entrySet(), k, Comparator
+                        .comparingInt((Map.Entry<Meal, Integer> entry) -> entry.getValue())
+                        .thenComparing(entry -> entry.getKey().getName(), Comparator.reverseOrder())
+                        .thenComparing(entry -> entry.getKey().getPriceInCent(), Comparator.reverseOrder()))
+                .stream()
+                .map(Map.Entry::getKey)
+                .toList());
+    }
+
+    public synchronized int getOccurrences(Meal meal) {
+        return popularity.getOrDefault(meal, 0);
+    }
+
+    //writes the statistics to getStatisticsPath(logfile), the stamp of the log is taken at the time of writing
+    public synchronized Optional<String> store() {
+        Path statisticsFile = getStatisticsPath(logfile);
+        Path temporary = statisticsFile.resolveSibling(statisticsFile.getFileName() + ".tmp");
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add(HEADER);
+            lines.add("log;" + getStamp(logfile));
+            lines.add("sum;" + count + ";" + sum + ";" + mean + ";" + m2);
+            if (count > 0) {
+                lines.add("min;" + cheapestMeal.getName() + "_" + cheapestMeal.getPriceInCent());
+                lines.add("max;" + mostExpensiveMeal.getName() + "_" + mostExpensiveMeal.getPriceInCent());
+            }
+            histogram.forEach((price, times) -> lines.add("price;" + price + ";" + times));
+            popularity.forEach((meal, times) -> lines.add("meal;" + meal.getName() + "_" + meal.getPriceInCent() + ";" + times));
+
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            try {
+                Files.move(temporary, statisticsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, statisticsFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            return Optional.of("Statistics could not be written: " + e);
+        }
+        return Optional.empty();
+    }
+
+    //removes the stored statistics, so that the next load rebuilds them from the log
+    public synchronized Optional<String> invalidate() {
+        try {
+            Files.deleteIfExists(getStatisticsPath(logfile));
+        } catch (IOException e) {
+            return Optional.of("Statistics could not be removed: " + e);
+        }
+        return Optional.empty();
+    }
+
+    static private Optional<IncrementalStatistics> read(Path logfile) throws IOException {
+        Path statisticsFile = getStatisticsPath(logfile);
+        if (!Files.exists(statisticsFile)) {
+            return Optional.empty();
+        }
+        List<String> lines = Files.readAllLines(statisticsFile, StandardCharsets.UTF_8);
+        if (lines.size() < 3 || !lines.get(0).equals(HEADER) || !lines.get(1).equals("log;" + getStamp(logfile))) {
+            return Optional.empty();
+        }
+
+        IncrementalStatistics statistics = createEmpty(logfile);
+        for (String line : lines.subList(2, lines.size())) {
+            String[] fields = line.split(";");
+            switch (fields[0]) {
+                case "sum" -> {
+                    statistics.count = Long.parseLong(fields[1]);
+                    statistics.sum = Long.parseLong(fields[2]);
+                    statistics.mean = Double.parseDouble(fields[3]);
+                    statistics.m2 = Double.parseDouble(fields[4]);
+                }
+                case "min" -> statistics.cheapestMeal = parseMeal(fields[1]);
+                case "max" -> statistics.mostExpensiveMeal = parseMeal(fields[1]);
+                case "price" -> statistics.histogram.add(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                case "meal" -> statistics.popularity.put(parseMeal(fields[1]), Integer.parseInt(fields[2]));
+                default -> throw new IllegalArgumentException("Unknown statistics entry: " + line);
+            }
+        }
+        if (statistics.histogram.getCount() != statistics.count) {
+            return Optional.empty();
+        }
+        return Optional.of(statistics);
+    }
+
+    static private Meal parseMeal(String field) {
+        int separator = field.lastIndexOf('_');
+        return MealPool.SHARED.getMeal(field.substring(0, separator), Integer.parseInt(field.substring(separator + 1)));
+    }
+
+    static private String getStamp(Path logfile) throws IOException {
+        return Files.size(logfile) + ";" + Files.getLastModifiedTime(logfile).toMillis();
+    }
+
+    private OptionalWithMessage<Boolean> checkNotEmpty() {
+        return count == 0 ? OptionalWithMessage.ofMsg("Invalid data argument!") : OptionalWithMessage.of(true);
+    }
+}
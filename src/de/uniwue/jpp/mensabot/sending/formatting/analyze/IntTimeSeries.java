@@ -0,0 +1,113 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import java.time.LocalDate;
+import java.util.*;
+
+//one int value per day, kept in two arrays sorted ascending by epoch day
+//the series is a read only map, so it can be used wherever a Map<LocalDate, Integer> was returned before, iterating it
+//yields the days in ascending order and the values can be read by position without boxing
+public final class IntTimeSeries extends AbstractMap<LocalDate, Integer> {
+    private final int[] epochDays;
+    private final int[] values;
+
+    private IntTimeSeries(int[] epochDays, int[] values) {
+        this.epochDays = epochDays;
+        this.values = values;
+    }
+
+    //the days may be in any order, for a day that occurs more than once the last value is used like with Map.put
+    static public IntTimeSeries createIntTimeSeries(int[] epochDays, int[] values) {
+        return createIntTimeSeries(epochDays, values, true);
+    }
+
+    //without allowDuplicates a day occurring twice throws an IllegalStateException like Collectors.toMap
+    static public IntTimeSeries createIntTimeSeries(int[] epochDays, int[] values, boolean allowDuplicates) {
+        if(epochDays.length != values.length) throw new IllegalArgumentException("Es muss für jeden Tag einen Wert geben");
+
+        int[] order = allowDuplicates ? TimeSeriesOrder.sortByDay(epochDays) : TimeSeriesOrder.sortByUniqueDay(epochDays, values);
+        int[] sortedDays = new int[order.length];
+        int[] sortedValues = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedDays[i] = epochDays[order[i]];
+            sortedValues[i] = values[order[i]];
+        }
+        return new IntTimeSeries(sortedDays, sortedValues);
+    }
+
+    //the days have to be ascending without duplicates already, the arrays are used directly
+    static IntTimeSeries ofSorted(int[] epochDays, int[] values) {
+        return new IntTimeSeries(epochDays, values);
+    }
+
+    @Override
+    public int size() {
+        return epochDays.length;
+    }
+
+    public int getEpochDay(int index) {
+        return epochDays[index];
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(epochDays[index]);
+    }
+
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    //position of the day in the series, or a negative number like Arrays.binarySearch if there is no value for it
+    public int indexOf(LocalDate date) {
+        long epochDay = date.toEpochDay();
+        if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return Arrays.binarySearch(epochDays, (int) epochDay);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof LocalDate date && indexOf(date) >= 0;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof LocalDate date)) {
+            return null;
+        }
+        int index = indexOf(date);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Set<Entry<LocalDate, Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<LocalDate, Integer>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < epochDays.length;
+                    }
+
+                    @Override
+                    public Entry<LocalDate, Integer> next() {
+                        if (next >= epochDays.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<LocalDate, Integer> entry = new SimpleImmutableEntry<>(getDate(next), values[next]);
+                        next++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return epochDays.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+//helpers for Analyzer.analyzeParallel, the menus are split into chunks that are analyzed in the given fork/join pool
+//partial results are always merged from left to right, so results that depend on the order of the menus equal the sequential ones
+final class ParallelAnalysis {
+    static final int MIN_CHUNK_SIZE = 1024;
+
+    private ParallelAnalysis() {
+    }
+
+    static <R> R mapReduce(List<Menu> data, ForkJoinPool pool, Function<List<Menu>, R> analyzeChunk, BinaryOperator<R> merge) {
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, data.size() / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new ChunkTask<>(data, 0, data.size(), chunkSize, analyzeChunk, merge));
+    }
+
+    //the value of every menu at the same position, the per-day analyzers build their time series from it
+    static double[] mapToDouble(List<Menu> data, ForkJoinPool pool, ToDoubleFunction<Menu> value) {
+        double[] values = new double[data.size()];
+        pool.submit(() -> IntStream.range(0, data.size()).parallel().forEach(i -> values[i] = value.applyAsDouble(data.get(i)))).join();
+        return values;
+    }
+
+    static int[] mapToInt(List<Menu> data, ForkJoinPool pool, ToIntFunction<Menu> value) {
+        int[] values = new int[data.size()];
+        pool.submit(() -> IntStream.range(0, data.size()).parallel().forEach(i -> values[i] = value.applyAsInt(data.get(i)))).join();
+        return values;
+    }
+
+    @SuppressWarnings("serial") //tasks are never serialized
+    private static class ChunkTask<R> extends RecursiveTask<R> {
+        private final List<Menu> data;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Function<List<Menu>, R> analyzeChunk;
+        private final BinaryOperator<R> merge;
+
+        ChunkTask(List<Menu> data, int from, int to, int chunkSize, Function<List<Menu>, R> analyzeChunk, BinaryOperator<R> merge) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.analyzeChunk = analyzeChunk;
+            this.merge = merge;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= chunkSize) {
+                return analyzeChunk.apply(data.subList(from, to));
+            }
+            int middle = from + (to - from) / 2;
+            ChunkTask<R> left = new ChunkTask<>(data, from, middle, chunkSize, analyzeChunk, merge);
+            left.fork();
+            R right = new ChunkTask<>(data, middle, to, chunkSize, analyzeChunk, merge).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
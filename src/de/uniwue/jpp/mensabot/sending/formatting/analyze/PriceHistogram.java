@@ -0,0 +1,232 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
+
+import java.util.*;
+
+//counts how often each price in cent occurs, prices are small so they are counted in an array indexed by price
+//if the prices are spread over more than MAX_DENSE_RANGE cents the counts are kept in a sorted map instead
+//adding a price is O(1), min and max are O(1), quantiles and price ranges are O(number of different prices)
+public final class PriceHistogram {
+    static final int MAX_DENSE_RANGE = 1 << 20;
+
+    //counts[i] is the number of meals with the price offset + i, null once the histogram is sparse
+    private int offset;
+    private int[] counts;
+    private TreeMap<Integer, Integer> sparse;
+
+    private long count;
+    private long sum;
+    private int minPrice;
+    private int maxPrice;
+    private Meal cheapestMeal;
+    private Meal mostExpensiveMeal;
+
+    public PriceHistogram() {
+        this.counts = new int[0];
+    }
+
+    static public PriceHistogram createPriceHistogram(List<Menu> data) {
+        PriceHistogram histogram = new PriceHistogram();
+        for (Menu menu : data) {
+            for (Meal meal : menu.getMeals()) {
+                histogram.add(meal);
+            }
+        }
+        return histogram;
+    }
+
+    //meals of a store are only counted by price, getCheapestMeal and getMostExpensiveMeal return null
+    static public PriceHistogram createPriceHistogram(MenuStore data) {
+        PriceHistogram histogram = new PriceHistogram();
+        for (int j = 0; j < data.getMealCount(); j++) {
+            histogram.add(data.getPrice(j), 1);
+        }
+        return histogram;
+    }
+
+    //the cheapest meal is the first and the most expensive meal the last one added with the lowest/highest price
+    public void add(Meal meal) {
+        int price = meal.getPriceInCent();
+        if (count == 0 || price < minPrice) {
+            cheapestMeal = meal;
+        }
+        if (count == 0 || price >= maxPrice) {
+            mostExpensiveMeal = meal;
+        }
+        add(price, 1);
+    }
+
+    public void add(int price, int times) {
+        if(price < 0) throw new IllegalArgumentException("Der Preis darf nicht negativ sein!");
+        if(times <= 0) return;
+
+        if (count == 0 || price < minPrice) {
+            minPrice = price;
+        }
+        if (count == 0 || price > maxPrice) {
+            maxPrice = price;
+        }
+        count += times;
+        sum += (long) price * times;
+
+        if (counts != null && (long) maxPrice - minPrice >= MAX_DENSE_RANGE) {
+            toSparse();
+        }
+        if (counts == null) {
+            sparse.merge(price, times, Integer::sum);
+            return;
+        }
+        if (price < offset || price >= offset + counts.length) {
+            grow();
+        }
+        counts[price - offset] += times;
+    }
+
+    //adds all prices of the other histogram, the meals of this histogram are kept if the prices are equal
+    public void addAll(PriceHistogram other) {
+        if (other.count == 0) {
+            return;
+        }
+        Meal cheapest = count == 0 || other.minPrice < minPrice ? other.cheapestMeal : cheapestMeal;
+        Meal mostExpensive = count == 0 || other.maxPrice >= maxPrice ? other.mostExpensiveMeal : mostExpensiveMeal;
+        other.forEach(this::add);
+        cheapestMeal = cheapest;
+        mostExpensiveMeal = mostExpensive;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int getMinPrice() {
+        checkNotEmpty();
+        return minPrice;
+    }
+
+    public int getMaxPrice() {
+        checkNotEmpty();
+        return maxPrice;
+    }
+
+    public Meal getCheapestMeal() {
+        checkNotEmpty();
+        return cheapestMeal;
+    }
+
+    public Meal getMostExpensiveMeal() {
+        checkNotEmpty();
+        return mostExpensiveMeal;
+    }
+
+    public int getCount(int price) {
+        if (counts == null) {
+            return sparse.getOrDefault(price, 0);
+        }
+        return price < offset || price >= offset + counts.length ? 0 : counts[price - offset];
+    }
+
+    //price at the given position if all prices were sorted ascending, rank 0 is the lowest price
+    public int getPriceAtRank(long rank) {
+        checkNotEmpty();
+        if(rank < 0 || rank >= count) throw new IndexOutOfBoundsException("Rank " + rank + " is not between 0 and " + (count - 1));
+
+        long seen = 0;
+        if (counts == null) {
+            for (Map.Entry<Integer, Integer> entry : sparse.entrySet()) {
+                seen += entry.getValue();
+                if (seen > rank) {
+                    return entry.getKey();
+                }
+            }
+        } else {
+            for (int i = minPrice - offset; i <= maxPrice - offset; i++) {
+                seen += counts[i];
+                if (seen > rank) {
+                    return offset + i;
+                }
+            }
+        }
+        throw new IllegalStateException("Histogram is inconsistent");
+    }
+
+    //lower median, the price at rank (count-1)/2
+    public int getMedian() {
+        return getPriceAtRank((count - 1) / 2);
+    }
+
+    //lowest price p so that at least the fraction q of all prices is lower or equal p
+    public int getQuantile(double q) {
+        if(q < 0 || q > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        return getPriceAtRank(Math.max(0, (long) Math.ceil(q * count) - 1));
+    }
+
+    //numberOfCategories ranges of sizeCent cents starting at 0 and one more range for all higher prices
+    public int[] countRanges(int numberOfCategories, int sizeCent) {
+        int[] result = new int[numberOfCategories + 1];
+        if (count == 0) {
+            return result;
+        }
+        forEach((price, times) -> result[Math.min(price / sizeCent, numberOfCategories)] += times);
+        return result;
+    }
+
+    //calls the consumer for every price with its count, ascending by price
+    public void forEach(PriceConsumer consumer) {
+        if (count == 0) {
+            return;
+        }
+        if (counts == null) {
+            sparse.forEach(consumer::accept);
+            return;
+        }
+        for (int i = minPrice - offset; i <= maxPrice - offset; i++) {
+            if (counts[i] != 0) {
+                consumer.accept(offset + i, counts[i]);
+            }
+        }
+    }
+
+    public interface PriceConsumer {
+        void accept(int price, int count);
+    }
+
+    //resizes the array so that it covers minPrice to maxPrice with some room on both sides
+    private void grow() {
+        long span = (long) maxPrice - minPrice + 1;
+        int length = (int) Math.min(MAX_DENSE_RANGE, Math.max(span * 2, 64));
+        int newOffset = (int) Math.max(0, Math.min(minPrice, (long) maxPrice + 1 - length));
+        int[] grown = new int[length];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                grown[offset + i - newOffset] = counts[i];
+            }
+        }
+        offset = newOffset;
+        counts = grown;
+    }
+
+    private void toSparse() {
+        sparse = new TreeMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                sparse.put(offset + i, counts[i]);
+            }
+        }
+        counts = null;
+    }
+
+    private void checkNotEmpty() {
+        if(count == 0) throw new NoSuchElementException("Histogram is empty");
+    }
+}
@@ -0,0 +1,144 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.util.List;
+
+/*-------------------------------------------------------------------------------------------------------------------------------------
+Statistics on a column of prices in cent, see getPrices
+
+There are two implementations:
+- ScalarKernels: plain loops, always available
+- VectorKernels: uses the incubating Vector API (jdk.incubator.vector), it is only compiled with the gradle property vector
+                 (e.g. "gradlew run -Pvector") and needs "--add-modules jdk.incubator.vector" at runtime
+
+getDefault returns the vectorised kernels if they can be loaded and the scalar ones otherwise, both compute the same results
+The list based TotalPriceAnalyzer, StandardDeviationAnalyzer and PriceRangeAnalyzer run on the default kernels if they are
+vectorised, the scalar kernels would not be faster than the loops over the menus, which do not copy the prices first
+-------------------------------------------------------------------------------------------------------------------------------------*/
+public interface PriceKernels {
+    //exact, unlike the int sums of the analyzers
+    long sum(int[] prices);
+
+    long sumOfSquares(int[] prices);
+
+    //Integer.MAX_VALUE for no prices
+    int min(int[] prices);
+
+    //Integer.MIN_VALUE for no prices
+    int max(int[] prices);
+
+    //like PriceRangeAnalyzer, entry i counts the prices from i*sizeCent to (i+1)*sizeCent-1, the last entry all higher prices
+    int[] countRanges(int[] prices, int numberOfCategories, int sizeCent);
+
+    //true if the kernels use vector instructions, only then it pays off to extract the prices with getPrices
+    default boolean isVectorized() {
+        return false;
+    }
+
+    //like StandardDeviationAnalyzer the deviations are taken from the integer mean
+    default double standardDeviation(int[] prices) {
+        if(prices.length == 0) throw new IllegalArgumentException("Es muss mindestens ein Preis übergeben werden");
+        long count = prices.length;
+        long sum = sum(prices);
+        long mean = (int) sum / prices.length;
+        long squaredDeviations = sumOfSquares(prices) - 2 * mean * sum + count * mean * mean;
+        return Math.sqrt((double) squaredDeviations / count);
+    }
+
+    //the prices of all meals in the order of the menus
+    static int[] getPrices(List<Menu> data) {
+        if(data == null) throw new IllegalArgumentException("Es muss eine Liste an Menüs übergeben werden");
+        int count = 0;
+        for (Menu menu : data) {
+            count += menu.getMeals().size();
+        }
+        int[] prices = new int[count];
+        int i = 0;
+        for (Menu menu : data) {
+            for (Meal meal : menu.getMeals()) {
+                prices[i++] = meal.getPriceInCent();
+            }
+        }
+        return prices;
+    }
+
+    static void checkCategories(int numberOfCategories, int sizeCent) {
+        if(numberOfCategories < 0) throw new IllegalArgumentException("Die Anzahl der Kategorien darf nicht negativ sein");
+        if(sizeCent <= 0) throw new IllegalArgumentException("Eine Kategorie muss mindestens einen Cent umfassen");
+    }
+
+    //kernels used by the analyzers, looked up once as loading the vector kernels by name is expensive
+    PriceKernels DEFAULT = createVectorKernels().orElseGet(PriceKernels::createScalarKernels);
+
+    static PriceKernels getDefault() {
+        return DEFAULT;
+    }
+
+    //the class is loaded by name, so this compiles and runs without the vector sources and module
+    static OptionalWithMessage<PriceKernels> createVectorKernels() {
+        try {
+            Class<?> kernels = Class.forName(PriceKernels.class.getPackageName() + ".VectorPriceKernels");
+            return OptionalWithMessage.of((PriceKernels) kernels.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return OptionalWithMessage.ofMsg("Vector kernels are not available: " + e);
+        }
+    }
+
+    static PriceKernels createScalarKernels() {
+        return new PriceKernels() {
+            @Override
+            public long sum(int[] prices) {
+                long sum = 0;
+                for (int price : prices) {
+                    sum += price;
+                }
+                return sum;
+            }
+
+            @Override
+            public long sumOfSquares(int[] prices) {
+                long sum = 0;
+                for (int price : prices) {
+                    sum += (long) price * price;
+                }
+                return sum;
+            }
+
+            @Override
+            public int min(int[] prices) {
+                int min = Integer.MAX_VALUE;
+                for (int price : prices) {
+                    min = Math.min(min, price);
+                }
+                return min;
+            }
+
+            @Override
+            public int max(int[] prices) {
+                int max = Integer.MIN_VALUE;
+                for (int price : prices) {
+                    max = Math.max(max, price);
+                }
+                return max;
+            }
+
+            @Override
+            public int[] countRanges(int[] prices, int numberOfCategories, int sizeCent) {
+                PriceKernels.checkCategories(numberOfCategories, sizeCent);
+                int[] result = new int[numberOfCategories + 1];
+                for (int price : prices) {
+                    result[Math.min(price / sizeCent, numberOfCategories)]++;
+                }
+                return result;
+            }
+
+            @Override
+            public String toString() {
+                return "ScalarKernels";
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+//price statistics of all meals of a list of menus, computed in a single pass over the meals
+//only the requested statistics are computed, the number of meals is always available
+public final class PriceStatistics {
+    public enum Statistic {COUNT, SUM, SUM_OF_SQUARES, MIN, MAX, HISTOGRAM}
+
+    private final List<Menu> data;
+    private final Set<Statistic> computed;
+    private final int count;
+    private final long sum;
+    private final long sumOfSquares;
+    private final Meal min;
+    private final Meal max;
+    private final PriceHistogram histogram;
+
+    private PriceStatistics(List<Menu> data, Set<Statistic> computed, int count, long sum, long sumOfSquares, Meal min, Meal max, PriceHistogram histogram) {
+        this.data = data;
+        this.computed = computed;
+        this.count = count;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram;
+    }
+
+    //min is the first and max the last meal with the lowest/highest price, like after a stable sort of all meals by price
+    static public PriceStatistics compute(List<Menu> data, Set<Statistic> statistics) {
+        Set<Statistic> computed = statistics.isEmpty() ? EnumSet.noneOf(Statistic.class) : EnumSet.copyOf(statistics);
+        computed.add(Statistic.COUNT);
+
+        int count = 0;
+        for (Menu menu : data) {
+            count += menu.getMeals().size();
+        }
+        if (computed.size() == 1) {
+            return new PriceStatistics(data, computed, count, 0, 0, null, null, null);
+        }
+
+        boolean trackMin = computed.contains(Statistic.MIN);
+        boolean trackMax = computed.contains(Statistic.MAX);
+        PriceHistogram histogram = computed.contains(Statistic.HISTOGRAM) ? new PriceHistogram() : null;
+        long sum = 0;
+        long sumOfSquares = 0;
+        Meal min = null;
+        Meal max = null;
+        for (Menu menu : data) {
+            for (Meal meal : menu.getMeals()) {
+                int price = meal.getPriceInCent();
+                sum += price;
+                sumOfSquares += (long) price * price;
+                if (trackMin && (min == null || price < min.getPriceInCent())) {
+                    min = meal;
+                }
+                if (trackMax && (max == null || price >= max.getPriceInCent())) {
+                    max = meal;
+                }
+                if (histogram != null) {
+                    histogram.add(meal);
+                }
+            }
+        }
+        return new PriceStatistics(data, computed, count, sum, sumOfSquares, min, max, histogram);
+    }
+
+    //like compute, the menus are split into chunks that are computed in the pool and merged in order
+    static public PriceStatistics computeParallel(List<Menu> data, Set<Statistic> statistics, ForkJoinPool pool) {
+        PriceStatistics merged = ParallelAnalysis.mapReduce(data, pool, chunk -> compute(chunk, statistics), PriceStatistics::merge);
+        return new PriceStatistics(data, merged.computed, merged.count, merged.sum, merged.sumOfSquares, merged.min, merged.max, merged.histogram);
+    }
+
+    //statistics of the menus of left followed by the menus of right, both have to contain the same statistics
+    //the menus themselves are not joined, computeParallel sets them afterwards
+    static PriceStatistics merge(PriceStatistics left, PriceStatistics right) {
+        Meal min = left.min;
+        if (right.min != null && (min == null || right.min.getPriceInCent() < min.getPriceInCent())) {
+            min = right.min;
+        }
+        Meal max = left.max;
+        if (right.max != null && (max == null || right.max.getPriceInCent() >= max.getPriceInCent())) {
+            max = right.max;
+        }
+        PriceHistogram histogram = left.histogram;
+        if (histogram != null) {
+            histogram.addAll(right.histogram);
+        }
+        return new PriceStatistics(null, left.computed, left.count + right.count, left.sum + right.sum,
+                left.sumOfSquares + right.sumOfSquares, min, max, histogram);
+    }
+
+    //the menus the statistics were computed from
+    public List<Menu> getData() {
+        return data;
+    }
+
+    public boolean contains(Statistic statistic) {
+        return computed.contains(statistic);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        check(Statistic.SUM);
+        return sum;
+    }
+
+    public long getSumOfSquares() {
+        check(Statistic.SUM_OF_SQUARES);
+        return sumOfSquares;
+    }
+
+    public Meal getMin() {
+        check(Statistic.MIN);
+        return min;
+    }
+
+    public Meal getMax() {
+        check(Statistic.MAX);
+        return max;
+    }
+
+    //histogram of all prices, it must not be modified
+    public PriceHistogram getHistogram() {
+        check(Statistic.HISTOGRAM);
+        return histogram;
+    }
+
+    private void check(Statistic statistic) {
+        if(!computed.contains(statistic)) throw new IllegalStateException(statistic + " was not computed");
+    }
+}
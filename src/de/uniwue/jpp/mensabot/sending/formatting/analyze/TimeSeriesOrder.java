@@ -0,0 +1,54 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+//sorts the entries of a time series by day without boxing
+final class TimeSeriesOrder {
+    private TimeSeriesOrder() {
+    }
+
+    //positions of the entries in ascending order of their days, of entries with the same day only the last one is kept
+    static int[] sortByDay(int[] epochDays) {
+        //day in the upper and position in the lower half, so sorting orders by day and then by position
+        long[] keys = new long[epochDays.length];
+        for (int i = 0; i < epochDays.length; i++) {
+            keys[i] = ((long) epochDays[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i + 1 < keys.length && (int) (keys[i + 1] >> 32) == (int) (keys[i] >> 32)) {
+                continue;
+            }
+            order[size++] = (int) keys[i];
+        }
+        return size == order.length ? order : Arrays.copyOf(order, size);
+    }
+
+    //like sortByDay, but a day occurring twice is an error with the message of Collectors.toMap, which reports the
+    //first position whose day occurred before
+    static int[] sortByUniqueDay(int[] epochDays, int[] values) {
+        long[] keys = new long[epochDays.length];
+        for (int i = 0; i < epochDays.length; i++) {
+            keys[i] = ((long) epochDays[i] << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[keys.length];
+        int duplicate = -1;
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+            if (i > 0 && (int) (keys[i - 1] >> 32) == (int) (keys[i] >> 32) && (duplicate < 0 || order[i] < order[duplicate])) {
+                duplicate = i;
+            }
+        }
+        if (duplicate >= 0) {
+            throw new IllegalStateException(String.format("Duplicate key %s (attempted merging values %s and %s)",
+                    LocalDate.ofEpochDay(epochDays[order[duplicate]]), values[order[duplicate - 1]], values[order[duplicate]]));
+        }
+        return order;
+    }
+}
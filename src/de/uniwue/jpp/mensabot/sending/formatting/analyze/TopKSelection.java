@@ -0,0 +1,29 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze;
+
+import java.util.*;
+
+//selects the k best elements with a heap of at most k elements instead of sorting all of them
+final class TopKSelection {
+    private TopKSelection() {
+    }
+
+    //returns the k greatest elements according to the order, greatest first
+    static <E> List<E> select(Iterable<E> elements, int k, Comparator<E> order) {
+        //the head of the heap is the worst of the current best elements
+        PriorityQueue<E> best = new PriorityQueue<>(Math.max(1, k), order);
+        for (E element : elements) {
+            if (best.size() < k) {
+                best.add(element);
+            } else if (k > 0 && order.compare(element, best.peek()) > 0) {
+                best.poll();
+                best.add(element);
+            }
+        }
+        List<E> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+
+//estimates how often each meal occurs with depth rows of width counters, independent of the number of different meals
+//an estimate is never too low and with probability 1 - delta at most epsilon * getTotalCount() too high,
+//for width = ceil(e / epsilon) and depth = ceil(ln(1 / delta))
+//sketches with the same dimensions can be merged, the result equals a sketch of all meals of both
+public final class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[][] counts;
+    private long totalCount;
+
+    public CountMinSketch(double epsilon, double delta) {
+        this((int) Math.ceil(Math.E / checkProbability(epsilon)), (int) Math.ceil(Math.log(1 / checkProbability(delta))));
+    }
+
+    public CountMinSketch(int width, int depth) {
+        if(width <= 0 || depth <= 0) throw new IllegalArgumentException("Breite und Tiefe müssen positiv sein");
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[depth][width];
+    }
+
+    public void add(Meal meal) {
+        add(meal, 1);
+    }
+
+    public void add(Meal meal, long times) {
+        if(times < 0) throw new IllegalArgumentException("Die Anzahl darf nicht negativ sein");
+        long hash = MealHash.hash(meal);
+        for (int row = 0; row < depth; row++) {
+            counts[row][column(hash, row)] += times;
+        }
+        totalCount += times;
+    }
+
+    public long estimate(Meal meal) {
+        long hash = MealHash.hash(meal);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public void merge(CountMinSketch other) {
+        if(other.width != width || other.depth != depth) throw new IllegalArgumentException("Nur Sketches mit gleichen Dimensionen können zusammengeführt werden");
+        for (int row = 0; row < depth; row++) {
+            for (int column = 0; column < width; column++) {
+                counts[row][column] += other.counts[row][column];
+            }
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    //the estimates are at most this much too high with probability 1 - delta
+    public double getMaximumError() {
+        return Math.E / width * totalCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch[" + width + "x" + depth + ", " + totalCount + " meals]";
+    }
+
+    //double hashing with the two halves of the hash, row i uses h1 + i * h2
+    private int column(long hash, int row) {
+        int combined = (int) hash + row * (int) (hash >>> 32);
+        return Math.floorMod(combined, width);
+    }
+
+    static private double checkProbability(double value) {
+        if(!(value > 0 && value < 1)) throw new IllegalArgumentException("Epsilon und Delta müssen zwischen 0 und 1 liegen");
+        return value;
+    }
+}
@@ -0,0 +1,79 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+
+//estimates the number of different meals with 2^precision one byte registers, independent of the number of meals
+//the relative standard error is 1.04 / sqrt(2^precision), e.g. about 1.6% for the default precision 12 (4 KiB)
+//sketches with the same precision can be merged, the result equals a sketch of all meals of both
+public final class HyperLogLog {
+    static public final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if(precision < 4 || precision > 18) throw new IllegalArgumentException("Die Genauigkeit muss zwischen 4 und 18 liegen");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(Meal meal) {
+        long hash = MealHash.hash(meal);
+        int index = (int) (hash >>> (64 - precision));
+        //the position of the first one bit of the remaining bits, the sentinel bit limits it to 64 - precision + 1
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if(other.precision != precision) throw new IllegalArgumentException("Nur Sketches mit gleicher Genauigkeit können zusammengeführt werden");
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public double getRelativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    //raw HyperLogLog estimate with linear counting for small cardinalities
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(estimate());
+    }
+}
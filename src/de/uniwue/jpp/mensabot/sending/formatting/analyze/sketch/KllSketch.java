@@ -0,0 +1,202 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+//KLL quantile sketch for prices in cent, keeps O(k log(n/k)) prices instead of all n
+//level h holds prices that each stand for 2^h prices, a full level is sorted and every second price is moved up a level
+//the rank of a returned quantile is off by at most about 1.65% of n for k = 200 with a probability of 99%,
+//the error shrinks proportionally to 1/k, min and max are exact
+//sketches with the same k can be merged, the error bound holds for the merged sketch as well
+public final class KllSketch {
+    static public final int DEFAULT_K = 200;
+    static private final int MIN_LEVEL_CAPACITY = 8;
+    static private final double CAPACITY_FACTOR = 2.0 / 3.0;
+
+    private final int k;
+    //the compaction offsets are random to keep the estimate unbiased, the seed is fixed so that results are reproducible
+    private final Random random = new Random(0x6b6c6cL);
+    private int[][] levels = {new int[MIN_LEVEL_CAPACITY]};
+    private int[] sizes = {0};
+    private long count;
+    private int min;
+    private int max;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    public KllSketch(int k) {
+        if(k < MIN_LEVEL_CAPACITY) throw new IllegalArgumentException("k muss mindestens " + MIN_LEVEL_CAPACITY + " sein");
+        this.k = k;
+    }
+
+    public void add(int price) {
+        if (count == 0 || price < min) {
+            min = price;
+        }
+        if (count == 0 || price > max) {
+            max = price;
+        }
+        count++;
+        append(0, price);
+        compress();
+    }
+
+    public void merge(KllSketch other) {
+        if(other.k != k) throw new IllegalArgumentException("Nur Sketches mit gleichem k können zusammengeführt werden");
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0 || other.min < min) {
+            min = other.min;
+        }
+        if (count == 0 || other.max > max) {
+            max = other.max;
+        }
+        count += other.count;
+        //append grows the levels, so they are copied first in case the sketch is merged with itself
+        int[] otherSizes = other.sizes.clone();
+        int[][] otherLevels = other.levels.clone();
+        for (int level = 0; level < otherSizes.length; level++) {
+            for (int i = 0; i < otherSizes[level]; i++) {
+                append(level, otherLevels[level][i]);
+            }
+        }
+        compress();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int getMin() {
+        checkNotEmpty();
+        return min;
+    }
+
+    public int getMax() {
+        checkNotEmpty();
+        return max;
+    }
+
+    //number of prices kept by the sketch
+    public int getRetained() {
+        return Arrays.stream(sizes).sum();
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    //approximately the lowest price p so that the fraction q of all prices is lower or equal p, like PriceHistogram.getQuantile
+    public int getQuantile(double q) {
+        if(q < 0 || q > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        checkNotEmpty();
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        return getPriceAtRank(Math.max(1, (long) Math.ceil(q * count)));
+    }
+
+    //lower median like PriceHistogram.getMedian
+    public int getMedian() {
+        checkNotEmpty();
+        return getPriceAtRank((count - 1) / 2 + 1);
+    }
+
+    @Override
+    public String toString() {
+        return count == 0 ? "KllSketch[empty]" : Integer.toString(getMedian());
+    }
+
+    //approximate price with the given rank, rank 1 is the lowest price
+    private int getPriceAtRank(long rank) {
+        int retained = getRetained();
+        long[] weighted = new long[retained];
+        int n = 0;
+        for (int level = 0; level < sizes.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                //price in the upper and level in the lower bits, so that sorting sorts by price
+                weighted[n++] = ((long) levels[level][i] << 8) | level;
+            }
+        }
+        Arrays.sort(weighted);
+
+        long seen = 0;
+        for (long entry : weighted) {
+            seen += 1L << (entry & 0xff);
+            if (seen >= rank) {
+                return (int) (entry >> 8);
+            }
+        }
+        return max;
+    }
+
+    private void append(int level, int price) {
+        if (level == sizes.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            levels[level] = new int[MIN_LEVEL_CAPACITY];
+            sizes = Arrays.copyOf(sizes, level + 1);
+        }
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = price;
+    }
+
+    private int capacity(int level) {
+        int depth = sizes.length - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_FACTOR, depth)));
+    }
+
+    //compacts the lowest full level until the sketch fits into its capacity again
+    private void compress() {
+        while (true) {
+            int total = 0;
+            int capacity = 0;
+            for (int level = 0; level < sizes.length; level++) {
+                total += sizes[level];
+                capacity += capacity(level);
+            }
+            if (total <= capacity) {
+                return;
+            }
+            for (int level = 0; level < sizes.length; level++) {
+                if (sizes[level] >= capacity(level)) {
+                    compact(level);
+                    break;
+                }
+            }
+        }
+    }
+
+    //sorts the level and moves every second price one level up, an odd price stays on the level
+    private void compact(int level) {
+        int size = sizes[level];
+        int[] prices = levels[level];
+        Arrays.sort(prices, 0, size);
+        int kept = size % 2 == 1 ? prices[size - 1] : 0;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = offset; i < size - size % 2; i += 2) {
+            append(level + 1, prices[i]);
+        }
+        //append may have replaced the arrays when a new level was added
+        sizes[level] = 0;
+        if (size % 2 == 1) {
+            levels[level][sizes[level]++] = kept;
+        }
+    }
+
+    private void checkNotEmpty() {
+        if(count == 0) throw new NoSuchElementException("Sketch is empty");
+    }
+}
@@ -0,0 +1,29 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+
+//64 bit hashes of meals for the sketches, equal meals (same name and price) get equal hashes
+final class MealHash {
+    private MealHash() {
+    }
+
+    //FNV-1a over the characters of the name and the price, finished with the MurmurHash3 mixer so that all bits are used
+    static long hash(Meal meal) {
+        String name = meal.getName();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ meal.getPriceInCent()) * 0x100000001b3L;
+        return mix(hash);
+    }
+
+    static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,172 @@
+package de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch;
+
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+
+import java.util.*;
+
+//SpaceSaving heavy hitters: counts the most frequent meals of an unbounded stream with a fixed number of counters
+//if all counters are in use, a new meal takes over the counter with the lowest count and inherits that count as error
+//every meal that occurs more than getTotalCount() / capacity times is kept, and every count is too high by at most
+//its error, which is never more than getTotalCount() / capacity
+//sketches with the same capacity can be merged, the bounds then hold for the combined stream
+public final class SpaceSaving {
+    private final int capacity;
+    private final Map<Meal, Counter> counters = new HashMap<>();
+    //min heap of the counters by count, so the counter to replace is always heap[0]
+    private Counter[] heap;
+    private int size;
+    private long totalCount;
+
+    public SpaceSaving(int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("Es muss mindestens einen Zähler geben");
+        this.capacity = capacity;
+        this.heap = new Counter[Math.min(capacity, 64)];
+    }
+
+    static private final class Counter {
+        private Meal meal;
+        private long count;
+        private long error;
+        private int index;
+    }
+
+    public void add(Meal meal) {
+        add(meal, 1, 0);
+    }
+
+    public void merge(SpaceSaving other) {
+        if(other.capacity != capacity) throw new IllegalArgumentException("Nur Sketches mit gleicher Kapazität können zusammengeführt werden");
+        //meals missing in one sketch may have occurred up to its minimum count there
+        long thisMin = size == capacity ? heap[0].count : 0;
+        long otherMin = other.size == other.capacity ? other.heap[0].count : 0;
+
+        Map<Meal, long[]> merged = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Counter counter = heap[i];
+            Counter otherCounter = other.counters.get(counter.meal);
+            merged.put(counter.meal, otherCounter == null
+                    ? new long[]{counter.count + otherMin, counter.error + otherMin}
+                    : new long[]{counter.count + otherCounter.count, counter.error + otherCounter.error});
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter counter = other.heap[i];
+            if (!counters.containsKey(counter.meal)) {
+                merged.put(counter.meal, new long[]{counter.count + thisMin, counter.error + thisMin});
+            }
+        }
+
+        long total = totalCount + other.totalCount;
+        counters.clear();
+        size = 0;
+        totalCount = 0;
+        merged.entrySet()
+                .stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Meal, long[]> entry) -> entry.getValue()[0]).reversed())
+                .limit(capacity)
+                .forEach(entry -> add(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        totalCount = total;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //upper bound of the error of every count
+    public long getMaximumError() {
+        return totalCount / capacity;
+    }
+
+    //estimated number of occurrences, never too low for a kept meal, 0 for meals without counter
+    public long estimate(Meal meal) {
+        Counter counter = counters.get(meal);
+        return counter == null ? 0 : counter.count;
+    }
+
+    //the k meals with the highest counts, most frequent first, ties are ordered by the lower error
+    public List<Meal> getTop(int k) {
+        return Arrays.stream(heap, 0, size)
+                .sorted(Comparator.comparingLong((Counter counter) -> counter.count).reversed().thenComparingLong(counter -> counter.error))
+                .limit(k)
+                .map(counter -> counter.meal)
+                .toList();
+    }
+
+    @Override
+    public String toString() {
+        return getTop(size).toString();
+    }
+
+    private void add(Meal meal, long count, long error) {
+        totalCount += count;
+        Counter counter = counters.get(meal);
+        if (counter != null) {
+            counter.count += count;
+            counter.error += error;
+            siftDown(counter.index);
+            return;
+        }
+        if (size < capacity) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(capacity, heap.length * 2));
+            }
+            counter = new Counter();
+            counter.meal = meal;
+            counter.count = count;
+            counter.error = error;
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(meal, counter);
+            siftUp(counter.index);
+            return;
+        }
+        counter = heap[0];
+        counters.remove(counter.meal);
+        counter.meal = meal;
+        counter.error = counter.count + error;
+        counter.count += count;
+        counters.put(meal, counter);
+        siftDown(0);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= heap[index].count) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left].count < heap[smallest].count) {
+                smallest = left;
+            }
+            if (right < size && heap[right].count < heap[smallest].count) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Counter counter = heap[i];
+        heap[i] = heap[j];
+        heap[j] = counter;
+        heap[i].index = i;
+        heap[j].index = j;
+    }
+}
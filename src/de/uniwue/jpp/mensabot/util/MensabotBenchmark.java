@@ -0,0 +1,320 @@
+package de.uniwue.jpp.mensabot.util;
+
+import de.uniwue.jpp.errorhandling.OptionalWithMessage;
+import de.uniwue.jpp.mensabot.dataclasses.Meal;
+import de.uniwue.jpp.mensabot.dataclasses.Menu;
+import de.uniwue.jpp.mensabot.dataclasses.MenuStore;
+import de.uniwue.jpp.mensabot.retrieval.BinaryLog;
+import de.uniwue.jpp.mensabot.retrieval.Parser;
+import de.uniwue.jpp.mensabot.retrieval.Saver;
+import de.uniwue.jpp.mensabot.sending.Importer;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.Analyzer;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.PriceKernels;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.CountMinSketch;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.HyperLogLog;
+import de.uniwue.jpp.mensabot.sending.formatting.analyze.sketch.KllSketch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+//class used for local performance measurements, the results are printed to the console
+//run with the number of menus as optional argument, e.g. "MensabotBenchmark 5000"
+public class MensabotBenchmark {
+    private static final int KERNEL_RUNS = 200;
+    private static final int IMPORT_LOG_SIZE = 16 << 20;
+    //results of the measured tasks, see measureResult
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        int numberOfMenus = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        List<Menu> history = createSampleHistory(numberOfMenus);
+        benchmarkSavers(history);
+        benchmarkParsers(history);
+        benchmarkImporters(history);
+        benchmarkAnalyzers(history);
+        benchmarkPriceKernels(history);
+        checkSketchMerges(history);
+    }
+
+    //creates one random menu per day, oldest first
+    public static List<Menu> createSampleHistory(int numberOfMenus) {
+        List<Menu> history = new ArrayList<>();
+        LocalDate date = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < numberOfMenus; i++) {
+            history.add(Menu.createMenu(date.plusDays(i), MensabotUtil.createRandomMealSet()));
+        }
+        return history;
+    }
+
+    //compares logging every menu on its own with logging the whole history as one batch
+    public static void benchmarkSavers(List<Menu> history) throws IOException {
+        System.out.println("Saver throughput for " + history.size() + " menus:");
+        measureSaver("AppendingCsvSaver           log   ", history, Saver.createAppendingCsvSaver(), false);
+        for (Saver.SyncPolicy policy : Saver.SyncPolicy.values()) {
+            measureSaver("BatchingCsvSaver " + String.format("%-10s", policy) + " log   ", history, Saver.createBatchingCsvSaver(policy), false);
+            measureSaver("BatchingCsvSaver " + String.format("%-10s", policy) + " logAll", history, Saver.createBatchingCsvSaver(policy), true);
+        }
+        for (Saver.SyncPolicy policy : Saver.SyncPolicy.values()) {
+            measureSaver("BinarySaver      " + String.format("%-10s", policy) + " log   ", history, Saver.createBinarySaver(policy), false);
+            measureSaver("BinarySaver      " + String.format("%-10s", policy) + " logAll", history, Saver.createBinarySaver(policy), true);
+        }
+    }
+
+    //compares the csv parser on strings and on bytes with the former regex based implementation
+    public static void benchmarkParsers(List<Menu> history) {
+        List<String> lines = history.stream().map(Menu::toCsvLine).toList();
+        byte[][] encodedLines = lines.stream().map(line -> line.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        Parser regexParser = createRegexCsvParser();
+        Parser csvParser = Parser.createCsvParser();
+
+        System.out.println("Parser throughput for " + lines.size() + " lines:");
+        measure("RegexCsvParser   parse(String)    ", lines.size(), 10, () -> lines.forEach(regexParser::parse));
+        measure("CsvParser        parse(String)    ", lines.size(), 10, () -> lines.forEach(csvParser::parse));
+        measure("CsvParser        parse(ByteBuffer)", lines.size(), 10, () -> {
+            for (byte[] line : encodedLines) {
+                csvParser.parse(ByteBuffer.wrap(line), 0, line.length);
+            }
+        });
+    }
+
+    //compares the mapped csv importer with the parallel one on pools of different sizes
+    //the history is repeated until the log has about IMPORT_LOG_SIZE bytes, as smaller files are not split into several tasks
+    public static void benchmarkImporters(List<Menu> history) throws IOException {
+        List<String> lines = history.stream().map(Menu::toCsvLine).toList();
+        Path logfile = Files.createTempFile("mensabot-benchmark", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(logfile, StandardCharsets.UTF_8)) {
+            while (Files.size(logfile) < IMPORT_LOG_SIZE) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+                writer.flush();
+            }
+        }
+
+        try {
+            int menus = Importer.createMappedCsvImporter().getAll(logfile).map(List::size).orElse(0);
+            System.out.println("Importer throughput for " + menus + " menus (" + Files.size(logfile) / 1024 + " KiB), "
+                    + Runtime.getRuntime().availableProcessors() + " processors:");
+            measure("MappedCsvImporter           ", menus, 5, () -> Importer.createMappedCsvImporter().getAll(logfile));
+            for (int parallelism : new TreeSet<>(List.of(1, 2, Runtime.getRuntime().availableProcessors()))) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    measure("ParallelCsvImporter " + String.format("%-2d", parallelism) + " threads", menus, 5,
+                            () -> Importer.createParallelCsvImporter(pool).getAll(logfile));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(logfile);
+        }
+    }
+
+    //compares the analyzers on the list of menus with the same analyzers on a MenuStore and in the common fork/join pool
+    public static void benchmarkAnalyzers(List<Menu> history) {
+        MenuStore store = MenuStore.createMenuStore(history);
+        List<Analyzer<?>> analyzers = List.of(
+                Analyzer.createAveragePriceAnalyzer(),
+                Analyzer.createMinPriceMealAnalyzer(),
+                Analyzer.createMaxPriceMealAnalyzer(),
+                Analyzer.createTotalPriceAnalyzer(),
+                Analyzer.createTotalPricePerDayAnalyzer(),
+                Analyzer.createStandardDeviationAnalyzer());
+
+        System.out.println("Analyzer throughput for " + history.size() + " menus:");
+        for (Analyzer<?> analyzer : analyzers) {
+            String name = String.format("%-26s", analyzer);
+            measure(name + " List<Menu>", history.size(), 10, () -> analyzer.analyze(history));
+            measure(name + " MenuStore ", history.size(), 10, () -> analyzer.analyze(store));
+            measure(name + " parallel  ", history.size(), 10, () -> analyzer.analyzeParallel(history, ForkJoinPool.commonPool()));
+        }
+    }
+
+    //compares the stream pipelines over the menus with the price kernels on the extracted price column
+    //the vectorised kernels are only measured when they are available, see PriceKernels
+    //the kernels run more often, as the vector code is only fast once it is compiled by C2
+    public static void benchmarkPriceKernels(List<Menu> history) {
+        int[] prices = PriceKernels.getPrices(history);
+        List<PriceKernels> kernels = new ArrayList<>();
+        kernels.add(PriceKernels.createScalarKernels());
+        PriceKernels.createVectorKernels().consume(kernels::add);
+
+        System.out.println("Price kernel throughput for " + prices.length + " prices:");
+        measureResult("Extract price column              ", prices.length, 10, () -> PriceKernels.getPrices(history).length);
+        measureResult("Streams                 sum       ", prices.length, 10, () -> history.stream().flatMap(menu -> menu.getMeals().stream()).mapToLong(Meal::getPriceInCent).sum());
+        measureResult("Streams                 min       ", prices.length, 10, () -> history.stream().flatMap(menu -> menu.getMeals().stream()).mapToInt(Meal::getPriceInCent).min().orElse(0));
+        measureResult("Streams                 max       ", prices.length, 10, () -> history.stream().flatMap(menu -> menu.getMeals().stream()).mapToInt(Meal::getPriceInCent).max().orElse(0));
+        measureResult("Streams                 stddev    ", prices.length, 10, () -> {
+            double mean = history.stream().flatMap(menu -> menu.getMeals().stream()).mapToInt(Meal::getPriceInCent).average().orElse(0);
+            return Double.doubleToLongBits(history.stream().flatMap(menu -> menu.getMeals().stream()).mapToDouble(meal -> Math.pow(meal.getPriceInCent() - mean, 2)).sum());
+        });
+        measureResult("Streams                 ranges    ", prices.length, 10, () -> history.stream().flatMap(menu -> menu.getMeals().stream())
+                .collect(Collectors.groupingBy(meal -> Math.min(meal.getPriceInCent() / 100, 5), Collectors.counting())).size());
+        for (PriceKernels kernel : kernels) {
+            String name = String.format("%-23s", kernel);
+            measureResult(name + " sum       ", prices.length, KERNEL_RUNS, () -> kernel.sum(prices));
+            measureResult(name + " min       ", prices.length, KERNEL_RUNS, () -> kernel.min(prices));
+            measureResult(name + " max       ", prices.length, KERNEL_RUNS, () -> kernel.max(prices));
+            measureResult(name + " stddev    ", prices.length, KERNEL_RUNS, () -> Double.doubleToLongBits(kernel.standardDeviation(prices)));
+            measureResult(name + " ranges    ", prices.length, KERNEL_RUNS, () -> kernel.countRanges(prices, 5, 100)[0]);
+        }
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    //builds the sketches of both halves of the history and merges them, the result is compared with a sketch of the whole
+    //history and the exact values, a merged sketch has to stay within the documented error bound of the sketch
+    public static void checkSketchMerges(List<Menu> history) {
+        System.out.println("Sketch merges for " + history.size() + " menus:");
+        List<Menu> firstHalf = history.subList(0, history.size() / 2);
+        List<Menu> secondHalf = history.subList(history.size() / 2, history.size());
+        int[] prices = history.stream().flatMap(menu -> menu.getMeals().stream()).mapToInt(Meal::getPriceInCent).sorted().toArray();
+        Map<String, Long> frequencies = history.stream().flatMap(menu -> menu.getMeals().stream())
+                .collect(Collectors.groupingBy(meal -> meal.getName() + ";" + meal.getPriceInCent(), Collectors.counting()));
+        if (prices.length == 0) {
+            System.out.println("no meals to check");
+            return;
+        }
+
+        KllSketch quantiles = new KllSketch();
+        KllSketch secondQuantiles = new KllSketch();
+        firstHalf.forEach(menu -> menu.getMeals().forEach(meal -> quantiles.add(meal.getPriceInCent())));
+        secondHalf.forEach(menu -> menu.getMeals().forEach(meal -> secondQuantiles.add(meal.getPriceInCent())));
+        quantiles.merge(secondQuantiles);
+        //the rank of the median may be off by about 1.65% of all prices for k = 200, see KllSketch
+        int median = quantiles.getMedian();
+        long lowerRank = Arrays.stream(prices).filter(price -> price < median).count() + 1;
+        long upperRank = Arrays.stream(prices).filter(price -> price <= median).count();
+        long rank = (prices.length - 1) / 2 + 1;
+        long rankError = rank < lowerRank ? lowerRank - rank : Math.max(0, rank - upperRank);
+        printCheck("KllSketch merge", quantiles.getCount() == prices.length && quantiles.getMin() == prices[0]
+                && quantiles.getMax() == prices[prices.length - 1] && rankError <= Math.ceil(0.0165 * prices.length),
+                "median " + median + ", exact " + prices[(prices.length - 1) / 2] + ", rank error " + rankError);
+        quantiles.merge(quantiles);
+        printCheck("KllSketch self merge", quantiles.getCount() == 2L * prices.length, "count " + quantiles.getCount());
+
+        HyperLogLog distinct = new HyperLogLog();
+        HyperLogLog secondDistinct = new HyperLogLog();
+        HyperLogLog wholeDistinct = new HyperLogLog();
+        firstHalf.forEach(menu -> menu.getMeals().forEach(distinct::add));
+        secondHalf.forEach(menu -> menu.getMeals().forEach(secondDistinct::add));
+        history.forEach(menu -> menu.getMeals().forEach(wholeDistinct::add));
+        distinct.merge(secondDistinct);
+        //three standard errors, the estimate is within them with a probability of more than 99%
+        double distinctError = Math.abs(distinct.estimate() - frequencies.size()) / (double) frequencies.size();
+        printCheck("HyperLogLog merge", distinct.estimate() == wholeDistinct.estimate() && distinctError <= 3 * distinct.getRelativeStandardError(),
+                "estimate " + distinct.estimate() + ", exact " + frequencies.size());
+
+        double epsilon = 0.001;
+        CountMinSketch counts = new CountMinSketch(epsilon, 0.01);
+        CountMinSketch secondCounts = new CountMinSketch(epsilon, 0.01);
+        CountMinSketch wholeCounts = new CountMinSketch(epsilon, 0.01);
+        firstHalf.forEach(menu -> menu.getMeals().forEach(counts::add));
+        secondHalf.forEach(menu -> menu.getMeals().forEach(secondCounts::add));
+        history.forEach(menu -> menu.getMeals().forEach(wholeCounts::add));
+        counts.merge(secondCounts);
+        boolean countsValid = counts.getTotalCount() == prices.length;
+        long maxError = 0;
+        for (Menu menu : history) {
+            for (Meal meal : menu.getMeals()) {
+                long exact = frequencies.get(meal.getName() + ";" + meal.getPriceInCent());
+                countsValid &= counts.estimate(meal) == wholeCounts.estimate(meal) && counts.estimate(meal) >= exact;
+                maxError = Math.max(maxError, counts.estimate(meal) - exact);
+            }
+        }
+        printCheck("CountMinSketch merge", countsValid && maxError <= epsilon * counts.getTotalCount(), "largest error " + maxError);
+    }
+
+    private static void printCheck(String name, boolean passed, String details) {
+        System.out.printf("%-28s %s (%s)%n", name, passed ? "ok" : "FAILED", details);
+    }
+
+    //the csv parser as it was implemented before it was replaced by a hand written one, kept as reference
+    static Parser createRegexCsvParser() {
+        return fetched -> {
+            Set<Meal> mealSet = new HashSet<>();
+            LocalDate date;
+
+            if(!(fetched.matches("[0-9]{4}-[0-9]{2}-[0-9]{2}(;[^_;]*_[0-9]+)*"))){
+                return OptionalWithMessage.ofMsg("Input does not match! Input was: '" + fetched +"'");
+            }
+
+            String[] input = fetched.split(";");
+            String[] singleMeal;
+
+            try{
+                date = LocalDate.parse(input[0]);
+            } catch (DateTimeParseException dtpe){
+                return OptionalWithMessage.ofMsg("Invalid date");
+            }
+
+            for(int i = 1; i < input.length; i++){
+                singleMeal = input[i].split("_");
+                mealSet.add(Meal.createMeal(singleMeal[0], Integer.parseInt(singleMeal[1])));
+            }
+
+            return OptionalWithMessage.of(Menu.createMenu(date, mealSet));
+        };
+    }
+
+    //runs the task several times to warm up and prints the duration of the last run
+    static void measure(String name, int operations, int runs, Runnable task) {
+        long duration = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            task.run();
+            duration = System.nanoTime() - start;
+        }
+        printResult(name, operations, duration, "");
+    }
+
+    //like measure for tasks whose result is otherwise unused, the results are added to sink and the sink is printed by the
+    //caller, so the JIT can not remove the work as dead code
+    static void measureResult(String name, int operations, int runs, LongSupplier task) {
+        long duration = 0;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            sink += task.getAsLong();
+            duration = System.nanoTime() - start;
+        }
+        printResult(name, operations, duration, "");
+    }
+
+    private static void measureSaver(String name, List<Menu> history, Saver saver, boolean batch) throws IOException {
+        Path logfile = Files.createTempFile("mensabot-benchmark", ".log");
+        try {
+            long start = System.nanoTime();
+            Optional<String> result = batch ? saver.logAll(logfile, history) : logEach(saver, logfile, history);
+            long duration = System.nanoTime() - start;
+            printResult(name, history.size(), duration, result.orElse(""));
+        } finally {
+            Files.deleteIfExists(logfile);
+            Files.deleteIfExists(BinaryLog.getDictionaryPath(logfile));
+        }
+    }
+
+    private static Optional<String> logEach(Saver saver, Path logfile, List<Menu> history) {
+        for (Menu menu : history) {
+            Optional<String> result = saver.log(logfile, menu);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    static void printResult(String name, int operations, long durationNanos, String error) {
+        double seconds = durationNanos / 1e9;
+        System.out.printf("%s %10.1f ms %14.0f ops/s %s%n", name, seconds * 1000, operations / seconds, error);
+    }
+}